@@ -0,0 +1,262 @@
+package benchmark;
+
+import functions.*;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+//Замеры всех методов интерфейса TabulatedFunction (JMH) для разных реализаций, размеров таблицы и порядка доступа.
+//
+//Сборка и запуск из корня репозитория (результаты и профиль памяти - в results.json):
+//  mvn -B package
+//  java -jar benchmark/target/benchmarks.jar -prof gc -rf json -rff results.json
+//Подмножество параметров и методов:
+//  java -jar benchmark/target/benchmarks.jar getFunctionValue -p impl=array,linkedlist -p size=1000 -prof gc -rf json
+//Прогоны сравниваются по results.json, например на jmh.morethan.io
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TabulatedFunctionBenchmark {
+    private static final int ARGS_COUNT = 1 << 12; //Заранее подготовленные номера и аргументы, перебираются по кругу
+
+    @Param({"array", "linkedlist", "unrolled", "primitive", "tree", "concurrent", "compact"})
+    public String impl;
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    //sequential - по возрастанию с постоянным шагом, random - случайно, sorted - случайные, но упорядоченные
+    @Param({"sequential", "random", "sorted"})
+    public String pattern;
+
+    private TabulatedFunction function;
+    private final int[] indices = new int[ARGS_COUNT];
+    private final double[] args = new double[ARGS_COUNT];
+    private final double[] values = new double[ARGS_COUNT]; //Значения функции в args - аргументы для getArgument
+    private final double[] batchOut = new double[ARGS_COUNT];
+    private double[] exported;
+    private int k;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        double[] ys = new double[size]; //Значения, чтобы поиск экстремумов и аргумента не вырождался
+        for (int i = 0; i < size; i++)
+            ys[i] = Math.sin(i * 0.1);
+        function = create(impl, size, ys);
+
+        double left = function.getLeftDomainBorder(), right = function.getRightDomainBorder();
+        long state = 42;
+        for (int j = 0; j < ARGS_COUNT; j++) {
+            if (pattern.equals("sequential")) {
+                indices[j] = j % size;
+                args[j] = left + (right - left) * j / (ARGS_COUNT - 1);
+            } else {
+                state = state * 6364136223846793005L + 1442695040888963407L; //Линейный конгруэнтный генератор
+                double random = (state >>> 11) * 0x1.0p-53;
+                indices[j] = (int) (random * size);
+                args[j] = left + (right - left) * random;
+            }
+        }
+        if (pattern.equals("sorted")) { //Случайные, но упорядоченные аргументы и номера
+            sort(args);
+            double[] keys = new double[ARGS_COUNT];
+            for (int j = 0; j < ARGS_COUNT; j++)
+                keys[j] = indices[j];
+            sort(keys);
+            for (int j = 0; j < ARGS_COUNT; j++)
+                indices[j] = (int) keys[j];
+        }
+        function.getFunctionValues(args, values);
+        exported = new double[size];
+    }
+
+    //Сортировка вставками с двоичным поиском места: выполняется один раз при подготовке
+    private static void sort(double[] values) {
+        for (int i = 1; i < values.length; i++) {
+            double value = values[i];
+            int low = 0, high = i;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] <= value)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            System.arraycopy(values, low, values, low + 1, i - low);
+            values[low] = value;
+        }
+    }
+
+    private static TabulatedFunction create(String impl, double right, double[] ys) {
+        switch (impl) {
+            case "array":
+                return new ArrayTabulatedFunction(0, right, ys);
+            case "linkedlist":
+                return new LinkedListTabulatedFunction(0, right, ys);
+            case "unrolled":
+                return new UnrolledLinkedListTabulatedFunction(0, right, ys);
+            case "primitive":
+                return new PrimitiveArrayTabulatedFunction(0, right, ys);
+            case "tree":
+                return new TreeTabulatedFunction(0, right, ys);
+            case "concurrent":
+                return new ConcurrentTabulatedFunction(0, right, ys);
+            case "compact":
+                return new CompactTabulatedFunction(0, right, ys);
+            default:
+                throw new IllegalArgumentException("Unknown implementation " + impl);
+        }
+    }
+
+    //Номер следующего подготовленного аргумента
+    private int next() {
+        return k++ & (ARGS_COUNT - 1);
+    }
+
+    @Benchmark
+    public double getLeftDomainBorder() {
+        return function.getLeftDomainBorder();
+    }
+
+    @Benchmark
+    public double getRightDomainBorder() {
+        return function.getRightDomainBorder();
+    }
+
+    @Benchmark
+    public int getPointsCount() {
+        return function.getPointsCount();
+    }
+
+    @Benchmark
+    public long getModificationCount() {
+        return function.getModificationCount();
+    }
+
+    @Benchmark
+    public double getFunctionValue() {
+        return function.getFunctionValue(args[next()]);
+    }
+
+    //Набор из всех подготовленных аргументов за один вызов; время - на один аргумент
+    @Benchmark
+    @OperationsPerInvocation(ARGS_COUNT)
+    public void getFunctionValues(Blackhole blackhole) {
+        function.getFunctionValues(args, batchOut);
+        blackhole.consume(batchOut);
+    }
+
+    @Benchmark
+    public double integral() {
+        int slot = next();
+        return function.integral(args[slot], args[ARGS_COUNT - 1 - slot]);
+    }
+
+    @Benchmark
+    public double getMinValue() {
+        int slot = next();
+        return function.getMinValue(args[slot], args[ARGS_COUNT - 1 - slot]);
+    }
+
+    @Benchmark
+    public double getMaxValue() {
+        int slot = next();
+        return function.getMaxValue(args[slot], args[ARGS_COUNT - 1 - slot]);
+    }
+
+    @Benchmark
+    public double getArgument() {
+        return function.getArgument(values[next()]);
+    }
+
+    @Benchmark
+    public FunctionPoint getPoint() {
+        return function.getPoint(indices[next()]);
+    }
+
+    @Benchmark
+    public double getPointX() {
+        return function.getPointX(indices[next()]);
+    }
+
+    @Benchmark
+    public double getPointY() {
+        return function.getPointY(indices[next()]);
+    }
+
+    //Обход всех точек; время - на весь обход
+    @Benchmark
+    public void forEachPoint(Blackhole blackhole) {
+        function.forEachPoint(new PointConsumer() {
+            public void accept(double x, double y) {
+                blackhole.consume(y);
+            }
+        });
+    }
+
+    @Benchmark
+    public void copyXs(Blackhole blackhole) {
+        function.copyXs(exported, 0);
+        blackhole.consume(exported);
+    }
+
+    @Benchmark
+    public void copyYs(Blackhole blackhole) {
+        function.copyYs(exported, 0);
+        blackhole.consume(exported);
+    }
+
+    @Benchmark
+    public void setPoint() throws InappropriateFunctionPointException {
+        int slot = next();
+        int index = indices[slot];
+        function.setPoint(index, new FunctionPoint(function.getPointX(index), args[slot]));
+    }
+
+    @Benchmark
+    public void setPointX() throws InappropriateFunctionPointException {
+        int index = indices[next()];
+        function.setPointX(index, function.getPointX(index));
+    }
+
+    @Benchmark
+    public void setPointY() {
+        int slot = next();
+        function.setPointY(indices[slot], args[slot]);
+    }
+
+    //Размер таблицы остается прежним: новая точка в середине отрезка удаляется сразу после добавления
+    @Benchmark
+    public void addPointDeletePoint() throws InappropriateFunctionPointException {
+        int slot = next();
+        int segment = Math.min(indices[slot], function.getPointsCount() - 2);
+        double x = (function.getPointX(segment) + function.getPointX(segment + 1)) / 2;
+        function.addPoint(new FunctionPoint(x, args[slot]));
+        function.deletePoint(segment + 1);
+    }
+
+    @Benchmark
+    public void deletePointAddPoint() throws InappropriateFunctionPointException {
+        int index = indices[next()];
+        FunctionPoint point = function.getPoint(index);
+        function.deletePoint(index);
+        function.addPoint(point);
+    }
+}
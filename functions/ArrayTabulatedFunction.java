@@ -1,9 +1,19 @@
 package functions;
 
-public class ArrayTabulatedFunction implements TabulatedFunction {
+public class ArrayTabulatedFunction implements TabulatedFunction, EditBatch.Replaceable, SegmentSearch.Measured {
     private FunctionPoint[] Points;
     private int length;
+    private long modificationCount; //Число изменений таблицы, см. getModificationCount
+    private final SegmentAreaIndex areaIndex = new SegmentAreaIndex(); //Площади под отрезками для integral
+    private final ValueRangeIndex valueIndex = new ValueRangeIndex(); //Наименьшие и наибольшие ординаты для getMinValue, getMaxValue, getArgument
     private final double EPSILON = 1e-9; //Машинный эпсилон для сравнений
+    private boolean uniform; //Точки расположены с равным шагом (как после конструкторов)
+    private double step; //Шаг равномерной сетки
+    private final SegmentSearch.Abscissas abscissas = new SegmentSearch.Abscissas() { //Абсциссы для поиска отрезка
+        public double x(int index) {
+            return Points[index].getX();
+        }
+    };
 
     //Конструктор по количеству элементов
     public ArrayTabulatedFunction(double leftX, double rightX, int pointsCount) {
@@ -24,6 +34,8 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
                 double x = leftX + i * delta;
                 this.Points[i] = new FunctionPoint(x, 0);
             }
+            this.uniform = delta > 0;
+            this.step = delta;
         }
 
     //Конструктор по значениям
@@ -33,7 +45,7 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
             throw new IllegalArgumentException("Right border must be greater than left border");
         }
 
-        if(values == null || values.length == 0) { // Защита от null и пустого массива
+        if(values == null || values.length < 2) { // Защита от null и пустого массива
             throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
         }
 
@@ -45,6 +57,21 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
             double x = leftX + i*delta;
             this.Points[i] = new FunctionPoint(x, values[i]);
         }
+        this.uniform = delta > 0;
+        this.step = delta;
+    }
+
+    //Конструктор по набору упорядоченных по x точек
+    public ArrayTabulatedFunction(FunctionPoint[] points) {
+        this(TabulatedFunctions.copyOrderedPoints(points), points.length, 0);
+    }
+
+    //Принимает массив точек без копирования и проверок; step > 0 - точки образуют равномерную сетку с этим шагом
+    ArrayTabulatedFunction(FunctionPoint[] points, int length, double step) {
+        this.Points = points;
+        this.length = length;
+        this.uniform = step > 0;
+        this.step = step;
     }
 
     //Геттеры
@@ -58,26 +85,158 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
         return this.length;
     }
 
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
     public double getFunctionValue(double x){
 
         if ((x + EPSILON < this.getLeftDomainBorder()) || (x - EPSILON > this.getRightDomainBorder()))
             return Double.NaN; //x в пределах области функции
 
-        for(int i = 0; i<length-1; i++){
-            if (Points[i+1].getX() + EPSILON >= x) { //Ищем нужный отрезок между точками
-                FunctionPoint p1 = Points[i];
-                FunctionPoint p2 = Points[i+1];
+        return valueInSegment(locateSegment(x), x); //Ищем нужный отрезок между точками
+    }
 
-                if(Math.abs(x-p1.getX()) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по нему y
-                    return p1.getY();
+    public void getFunctionValues(double[] xs, int from, int to, double[] out) {
+        if (xs == null || out == null || from < 0 || from > to || to > xs.length || to > out.length)
+            throw new IllegalArgumentException("Invalid arguments range");
+
+        boolean sorted = true; //Неупорядоченные аргументы (или NaN) - поиск отрезка для каждого отдельно
+        for (int k = from + 1; k < to && sorted; k++)
+            sorted = xs[k-1] <= xs[k];
+
+        double left = getLeftDomainBorder(), right = getRightDomainBorder();
+        int last = length - 2;
+        int i = -1;
+        for (int k = from; k < to; k++) { //Для возрастающих аргументов отрезки проходятся одним встречным проходом
+            double x = xs[k];
+            if (!((x + EPSILON >= left) && (x - EPSILON <= right))) { //Вне области определения или NaN
+                out[k] = Double.NaN;
+                continue;
+            }
+            if (i < 0 || !sorted) {
+                i = locateSegment(x);
+            } else {
+                int steps = 0;
+                while (i < last && Points[i+1].getX() + EPSILON < x) {
+                    if (++steps > 8) { //Аргументы разрежены относительно точек - дальше быстрее искать заново
+                        i = locateSegment(x);
+                        break;
+                    }
+                    i++;
+                }
+            }
+            out[k] = valueInSegment(i, x);
+        }
+    }
 
-                if(Math.abs(x-p2.getX()) <= EPSILON)
-                    return p2.getY();
+    //Интеграл за O(log n) по префиксным суммам площадей отрезков
+    public double integral(double a, double b) {
+        double left = getLeftDomainBorder(), right = getRightDomainBorder();
+        if (!((a + EPSILON >= left) && (a - EPSILON <= right) && (b + EPSILON >= left) && (b - EPSILON <= right)))
+            return Double.NaN; //a и b в пределах области функции
+
+        if (!areaIndex.isBuilt()) {
+            areaIndex.reset(length - 1);
+            for (int i = 0; i < length - 1; i++)
+                areaIndex.put(i, SegmentAreaIndex.trapezoid(Points[i].getX(), Points[i].getY(), Points[i+1].getX(), Points[i+1].getY()));
+            areaIndex.build();
+        }
+        return areaBefore(Math.min(Math.max(b, left), right)) - areaBefore(Math.min(Math.max(a, left), right));
+    }
 
-                return p1.getY() + (x - p1.getX())* (p2.getY() - p1.getY()) / (p2.getX() - p1.getX()); //Считаем значение по формуле
-            }
+    //Площадь под ломаной от левой границы до x: целые отрезки по индексу и часть отрезка, содержащего x
+    private double areaBefore(double x) {
+        int i = locateSegment(x);
+        double x1 = Points[i].getX(), y1 = Points[i].getY(), x2 = Points[i+1].getX(), y2 = Points[i+1].getY();
+        double y = y1 + (x - x1) * (y2 - y1) / (x2 - x1);
+        return areaIndex.prefix(i) + SegmentAreaIndex.trapezoid(x1, y1, x, y);
+    }
+
+    //Пересчет площадей двух отрезков, примыкающих к точке index
+    private void refreshAreas(int index) {
+        if (!areaIndex.isBuilt())
+            return;
+        if (index > 0)
+            areaIndex.set(index - 1, SegmentAreaIndex.trapezoid(Points[index-1].getX(), Points[index-1].getY(), Points[index].getX(), Points[index].getY()));
+        if (index < length - 1)
+            areaIndex.set(index, SegmentAreaIndex.trapezoid(Points[index].getX(), Points[index].getY(), Points[index+1].getX(), Points[index+1].getY()));
+    }
+
+    public double getMinValue(double a, double b) {
+        return extremum(a, b, false);
+    }
+
+    public double getMaxValue(double a, double b) {
+        return extremum(a, b, true);
+    }
+
+    //Значения на концах [a; b] и наименьшее (наибольшее) значение точек между ними по дереву отрезков
+    private double extremum(double a, double b, boolean maximum) {
+        double left = getLeftDomainBorder(), right = getRightDomainBorder();
+        if (!((a + EPSILON >= left) && (a - EPSILON <= right) && (b + EPSILON >= left) && (b - EPSILON <= right)))
+            return Double.NaN; //a и b в пределах области функции
+
+        double low = Math.min(Math.max(Math.min(a, b), left), right), high = Math.min(Math.max(Math.max(a, b), left), right);
+        double atLow = getFunctionValue(low), atHigh = getFunctionValue(high);
+        double result = maximum ? Math.max(atLow, atHigh) : Math.min(atLow, atHigh);
+        int from = locateSegment(low) + 1, to = locateSegment(high) + 1; //Точки строго между концами
+        if (from < to) {
+            buildValueIndex();
+            result = maximum ? Math.max(result, valueIndex.max(from, to)) : Math.min(result, valueIndex.min(from, to));
         }
-        return Double.NaN;
+        return result;
+    }
+
+    //Наименьший x со значением y: первая точка, достигающая y, находится спуском по дереву отрезков
+    public double getArgument(double y) {
+        double first = Points[0].getY();
+        if (y == first)
+            return Points[0].getX();
+        if (!(first < y || first > y)) //y или первое значение - NaN
+            return Double.NaN;
+
+        buildValueIndex();
+        int j = valueIndex.first(y, first < y);
+        if (j < 0)
+            return Double.NaN;
+        return ValueScan.crossing(Points[j-1].getX(), Points[j-1].getY(), Points[j].getX(), Points[j].getY(), y);
+    }
+
+    private void buildValueIndex() {
+        if (!valueIndex.isBuilt()) {
+            valueIndex.reset(length);
+            for (int i = 0; i < length; i++)
+                valueIndex.put(i, Points[i].getY());
+            valueIndex.build();
+        }
+    }
+
+    //Значение в x, лежащем на отрезке [x(i); x(i+1)]
+    private double valueInSegment(int i, double x) {
+        FunctionPoint p1 = Points[i];
+        FunctionPoint p2 = Points[i+1];
+
+        if(Math.abs(x-p1.getX()) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по нему y
+            return p1.getY();
+
+        if(Math.abs(x-p2.getX()) <= EPSILON)
+            return p2.getY();
+
+        return p1.getY() + (x - p1.getX())* (p2.getY() - p1.getY()) / (p2.getX() - p1.getX()); //Считаем значение по формуле
+    }
+
+    //Номер отрезка [x(i); x(i+1)] для x из области определения: наименьшее i, при котором x(i+1) + EPSILON >= x
+    private int locateSegment(double x) {
+        return SegmentSearch.locate(abscissas, length, uniform ? step : 0, x);
+    }
+
+    //Число шагов поиска отрезка для x без изменения состояния (для метрик); 0 вне области определения
+    public int segmentSearchSteps(double x) {
+        if (!((x + EPSILON >= getLeftDomainBorder()) && (x - EPSILON <= getRightDomainBorder())))
+            return 0;
+
+        return SegmentSearch.steps(abscissas, length, uniform ? step : 0, x);
     }
 
     public FunctionPoint getPoint(int index) {
@@ -100,15 +259,48 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
         return this.Points[index].getY();
     }
 
+    public void forEachPoint(int from, int to, PointConsumer consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null");
+        }
+        if (from < 0 || from > to || to > length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        for (int i = from; i < to; i++)
+            consumer.accept(Points[i].getX(), Points[i].getY());
+    }
+
+    public void copyXs(double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - length) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        for (int i = 0; i < length; i++)
+            target[offset + i] = Points[i].getX();
+    }
+
+    public void copyYs(double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - length) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        for (int i = 0; i < length; i++)
+            target[offset + i] = Points[i].getY();
+    }
+
     //Сеттеры
     public void setPoint(int index, FunctionPoint point)
         throws InappropriateFunctionPointException {
         if (index < 0 || index >= length || point == null)
             throw new FunctionPointIndexOutOfBoundsException(); //Проверка индекса
         //Проверка попадания в интервалы
-        if (index>0 && point.getX() - EPSILON <= Points[index - 1].getX())
+        if ((index > 0 && point.getX() - EPSILON <= Points[index - 1].getX()) ||
+                (index < length - 1 && point.getX() + EPSILON >= Points[index + 1].getX()))
             throw new InappropriateFunctionPointException();
+        if (point.getX() != Points[index].getX())
+            uniform = false; //Сетка перестает быть равномерной
         Points[index] = new FunctionPoint(point);
+        refreshAreas(index);
+        valueIndex.set(index, point.getY());
+        modificationCount++;
     }
 
     public void setPointX(int index, double x)
@@ -118,12 +310,16 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
         }
 
         //Проверка попадания в интервалы
-        if ( index > 0 && x - EPSILON <= Points[index - 1].getX() ||
-                (index < length - 1 && x >= Points[index + 1].getX())) {
+        if ((index > 0 && x - EPSILON <= Points[index - 1].getX()) ||
+                (index < length - 1 && x + EPSILON >= Points[index + 1].getX())) {
             throw new InappropriateFunctionPointException();
         }
 
+        if (x != Points[index].getX())
+            uniform = false;
         Points[index].setX(x);
+        refreshAreas(index);
+        modificationCount++;
     }
 
     public void setPointY(int index, double y) {
@@ -131,6 +327,9 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
             throw new FunctionPointIndexOutOfBoundsException();
         }
         Points[index].setY(y);
+        refreshAreas(index);
+        valueIndex.set(index, y);
+        modificationCount++;
     }
 
     public void deletePoint(int index) {
@@ -142,10 +341,16 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
             throw new IllegalStateException();
         }
 
+        if (index != 0 && index != length-1) //Удаление крайней точки сохраняет равномерность сетки
+            uniform = false;
+
         for (int i = index; i < length-1; i++) //Сдвигаем элементы влево
             Points[i] = Points[i+1];
         Points[length-1] = null; //Заменяем последний на пустой
         length--; //Уменьшаем переменную длины
+        areaIndex.invalidate(); //Номера отрезков сдвинулись - индекс строится заново при следующем запросе
+        valueIndex.invalidate();
+        modificationCount++;
     }
 
     public void addPoint(FunctionPoint point)
@@ -154,27 +359,168 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
             throw new InappropriateFunctionPointException();
         }
 
-        int index = 0; //Ищем место для новой точки по х
-        while (index < length && point.getX() - EPSILON > Points[index].getX()) {
-            index++;
+        double x = point.getX();
+        int low = 0, high = length; //Ищем место для новой точки по х: первый индекс, где x(i) + EPSILON >= x
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Points[mid].getX() + EPSILON >= x)
+                high = mid;
+            else
+                low = mid + 1;
         }
-        if(Math.abs(point.getX() - Points[index].getX()) <= EPSILON) { //Если совпадает с другой точкой
+        int index = low;
+        if(index < length && Math.abs(x - Points[index].getX()) <= EPSILON) { //Если совпадает с другой точкой
             throw  new InappropriateFunctionPointException();
         }
 
-        if (length == Points.length){ //Если массив первоначального размера, увеличиваем его
-            FunctionPoint[] extendedPoints = new FunctionPoint[Points.length + 1];
-            for (int i = 0; i< length; i++)
-                extendedPoints[i] = Points[i];
-
-            Points = extendedPoints;
-        }
+        ensureCapacity(length + 1);
 
         for (int i=length; i> index; i--){ //Сдвиг элементов вправо
             Points[i] = Points[i-1];
         }
         Points[index] = new FunctionPoint(point); //Добавление элемента и увеличение переменной длины
         length++;
+        uniform = false;
+        areaIndex.invalidate(); //Номера отрезков сдвинулись - индекс строится заново при следующем запросе
+        valueIndex.invalidate();
+        modificationCount++;
     }
 
-}
\ No newline at end of file
+    //Добавление точки правее всех имеющихся (например, очередного отсчета по времени) за амортизированное O(1):
+    //проверяется только правая граница, место не ищется
+    public void appendPoint(FunctionPoint point)
+        throws InappropriateFunctionPointException {
+        if (point == null || !(point.getX() - EPSILON > Points[length-1].getX())) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        ensureCapacity(length + 1);
+        Points[length] = new FunctionPoint(point);
+        length++;
+        uniform = false;
+        areaIndex.append(SegmentAreaIndex.trapezoid(Points[length-2].getX(), Points[length-2].getY(), Points[length-1].getX(), Points[length-1].getY()));
+        valueIndex.append(point.getY());
+        modificationCount++;
+    }
+
+    //Добавление набора точек за один проход слиянием: O(n + k log k) вместо k вставок по O(n)
+    public void addPoints(FunctionPoint[] points)
+        throws InappropriateFunctionPointException {
+        if (points == null) {
+            throw new IllegalArgumentException("Points array must not be null");
+        }
+
+        double[] xs = new double[points.length];
+        double[] ys = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null) {
+                throw new InappropriateFunctionPointException();
+            }
+            xs[i] = points[i].getX();
+            ys[i] = points[i].getY();
+        }
+        mergePoints(xs, ys);
+    }
+
+    public void addPoints(double[] xs, double[] ys)
+        throws InappropriateFunctionPointException {
+        if (xs == null || ys == null || xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate arrays must be of equal length");
+        }
+        mergePoints(xs.clone(), ys.clone());
+    }
+
+    //Сортирует новые точки и сливает их с имеющимися; при совпадении x функция не изменяется
+    private void mergePoints(double[] xs, double[] ys)
+        throws InappropriateFunctionPointException {
+        int count = xs.length;
+        for (int i = 0; i < count; i++) {
+            if (Double.isNaN(xs[i]))
+                throw new InappropriateFunctionPointException();
+        }
+        Sorting.sort(xs, ys, 0, count);
+
+        for (int i = 1; i < count; i++) { //Совпадения внутри набора
+            if (xs[i] - xs[i-1] <= EPSILON)
+                throw new InappropriateFunctionPointException();
+        }
+        int i = 0, j = 0; //Совпадения с имеющимися точками могут быть только у соседних после слияния
+        while (i < length && j < count) {
+            double x = Points[i].getX();
+            if (Math.abs(x - xs[j]) <= EPSILON)
+                throw new InappropriateFunctionPointException();
+            if (x < xs[j])
+                i++;
+            else
+                j++;
+        }
+
+        if (count == 0)
+            return;
+        ensureCapacity(length + count);
+
+        i = length - 1; //Слияние с конца, чтобы не затирать еще не перенесенные точки
+        j = count - 1;
+        for (int k = length + count - 1; j >= 0; k--) {
+            if (i >= 0 && Points[i].getX() > xs[j])
+                Points[k] = Points[i--];
+            else {
+                Points[k] = new FunctionPoint(xs[j], ys[j]);
+                j--;
+            }
+        }
+        length += count;
+        uniform = false;
+        areaIndex.invalidate();
+        valueIndex.invalidate();
+        modificationCount++;
+    }
+
+    //Неизменяемая копия текущего набора точек
+    public ImmutableTabulatedFunction snapshot() {
+        double[] xs = new double[length];
+        double[] ys = new double[length];
+        for (int i = 0; i < length; i++) {
+            xs[i] = Points[i].getX();
+            ys[i] = Points[i].getY();
+        }
+        return ImmutableTabulatedFunction.fromOrderedPoints(xs, ys, length);
+    }
+
+    //Гарантирует место под minCapacity точек без перевыделения массива
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity <= Points.length)
+            return;
+
+        int capacity = Points.length + (Points.length >> 1) + 1; //Рост в полтора раза - амортизированно O(1) на точку
+        if (capacity < minCapacity)
+            capacity = minCapacity;
+
+        FunctionPoint[] extendedPoints = new FunctionPoint[capacity];
+        System.arraycopy(Points, 0, extendedPoints, 0, length);
+        Points = extendedPoints;
+    }
+
+    //Освобождает неиспользуемую часть массива
+    public void trimToSize() {
+        if (length < Points.length) {
+            FunctionPoint[] trimmedPoints = new FunctionPoint[length];
+            System.arraycopy(Points, 0, trimmedPoints, 0, length);
+            Points = trimmedPoints;
+        }
+    }
+
+    //Замена всех точек набором EditBatch без проверок; точки таблицы создаются заново по его массивам
+    public EditResult replacePoints(EditBatch.Replacement replacement) {
+        FunctionPoint[] points = new FunctionPoint[replacement.length];
+        for (int i = 0; i < replacement.length; i++)
+            points[i] = new FunctionPoint(replacement.xs[i], replacement.ys[i]);
+        this.Points = points;
+        this.length = replacement.length;
+        uniform = false;
+        areaIndex.invalidate();
+        valueIndex.invalidate();
+        modificationCount++;
+        return EditResult.SUCCESS;
+    }
+}
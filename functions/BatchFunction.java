@@ -0,0 +1,6 @@
+package functions;
+
+//Функция, вычисляемая сразу для набора аргументов: values[k] = f(args[k]) для k из [0; count)
+public interface BatchFunction {
+    void apply(double[] args, double[] values, int count);
+}
@@ -0,0 +1,21 @@
+package functions;
+
+//Двоичный формат табулированной функции (все числа little-endian):
+//  int    сигнатура MAGIC
+//  int    версия формата VERSION
+//  int    флаги (FLAG_UNIFORM - x образуют равномерную сетку и не хранятся)
+//  int    резерв, 0
+//  long   число точек
+//  double левая граница
+//  double шаг сетки
+//  double[] x (только для неравномерной сетки), затем double[] y
+final class BinaryFormat {
+    static final int MAGIC = 0x46424154; //"TABF"
+    static final int VERSION = 1;
+    static final int FLAG_UNIFORM = 1;
+    static final int HEADER_SIZE = 40;
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private BinaryFormat() {
+    }
+}
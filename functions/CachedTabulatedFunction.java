@@ -0,0 +1,269 @@
+package functions;
+
+//Обертка, запоминающая значения getFunctionValue для повторяющихся аргументов.
+//Таблица с открытой адресацией (линейное пробирование) по битам x, вытеснение по алгоритму CLOCK.
+//Каждая запись помечена счетчиком изменений функции на момент вычисления; после изменения таблицы
+//записи с прежней меткой считаются промахами и вытесняются первыми. Объект не потокобезопасен
+public class CachedTabulatedFunction implements TabulatedFunction, EditBatch.Replaceable, SegmentSearch.Measured {
+    private final TabulatedFunction function;
+    private final int maxEntries;
+    private final int shift; //64 - log2(числа ячеек), для выбора ячейки по старшим битам хэша
+    private final int mask;
+
+    private final long[] keys; //Биты x
+    private final double[] values;
+    private final long[] stamps; //Счетчик изменений функции, при котором вычислено значение
+    private final boolean[] used;
+    private final boolean[] referenced; //Бит обращения для CLOCK
+    private int size;
+    private int hand; //Стрелка CLOCK
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CachedTabulatedFunction(TabulatedFunction function, int maxEntries) {
+        if (function == null) {
+            throw new IllegalArgumentException("Function must not be null");
+        }
+        if (maxEntries < 1 || maxEntries > (1 << 29)) {
+            throw new IllegalArgumentException("Cache size must be in [1; 2^29]");
+        }
+
+        int capacity = 2; //Заполнение таблицы не больше половины, чтобы цепочки пробирования были короткими
+        while (capacity < 2 * maxEntries)
+            capacity <<= 1;
+        this.function = function;
+        this.maxEntries = maxEntries;
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        this.mask = capacity - 1;
+        this.keys = new long[capacity];
+        this.values = new double[capacity];
+        this.stamps = new long[capacity];
+        this.used = new boolean[capacity];
+        this.referenced = new boolean[capacity];
+    }
+
+    private int home(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    public double getFunctionValue(double x) {
+        long key = Double.doubleToLongBits(x); //Все NaN дают один ключ
+        long stamp = function.getModificationCount(); //Читается до вычисления: при гонке запись лишь устареет раньше
+        int slot = home(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                if (stamps[slot] == stamp) {
+                    hits++;
+                    referenced[slot] = true;
+                    return values[slot];
+                }
+                misses++; //Значение устарело - пересчитываем на том же месте
+                double value = function.getFunctionValue(x);
+                values[slot] = value;
+                stamps[slot] = stamp;
+                referenced[slot] = true;
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        misses++;
+        double value = function.getFunctionValue(x);
+        if (size == maxEntries) {
+            evict(stamp);
+            slot = home(key); //После вытеснения записи сдвигаются, свободное место ищется заново
+            while (used[slot])
+                slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        stamps[slot] = stamp;
+        referenced[slot] = false; //Новая запись переживет обход стрелки, только если к ней обратятся
+        size++;
+        return value;
+    }
+
+    //Освобождает одну запись: устаревшую или ту, к которой не обращались с прошлого прохода стрелки
+    private void evict(long stamp) {
+        while (true) {
+            int slot = hand;
+            hand = (hand + 1) & mask;
+            if (!used[slot])
+                continue;
+            if (referenced[slot] && stamps[slot] == stamp) {
+                referenced[slot] = false;
+                continue;
+            }
+            remove(slot);
+            evictions++;
+            return;
+        }
+    }
+
+    //Удаление со сдвигом следующих записей цепочки назад, чтобы поиск не обрывался на освободившейся ячейке
+    private void remove(int slot) {
+        int free = slot;
+        int next = (slot + 1) & mask;
+        while (used[next]) {
+            int target = home(keys[next]);
+            //Запись можно перенести в free, если ее исходная ячейка не лежит циклически в (free; next]
+            if (((next - target) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                stamps[free] = stamps[next];
+                referenced[free] = referenced[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[free] = false;
+        size--;
+    }
+
+    //Шаги поиска отрезка сообщает обернутая таблица, если умеет, иначе -1
+    public int segmentSearchSteps(double x) {
+        if (function instanceof SegmentSearch.Measured)
+            return ((SegmentSearch.Measured) function).segmentSearchSteps(x);
+        return -1;
+    }
+
+    //Пакетное вычисление передается функции без кэша: ее проход по упорядоченным аргументам и так быстрый
+    public void getFunctionValues(double[] xs, int from, int to, double[] out) {
+        function.getFunctionValues(xs, from, to, out);
+    }
+
+    public void clear() {
+        for (int i = 0; i <= mask; i++)
+            used[i] = false;
+        size = 0;
+        hand = 0;
+    }
+
+    public long getHitCount() {
+        return hits;
+    }
+
+    public long getMissCount() {
+        return misses;
+    }
+
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    //Доля попаданий среди всех обращений к кэшу (NaN, если обращений не было)
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    public int getCachedCount() {
+        return size;
+    }
+
+    public double getLeftDomainBorder() {
+        return function.getLeftDomainBorder();
+    }
+
+    public double getRightDomainBorder() {
+        return function.getRightDomainBorder();
+    }
+
+    public int getPointsCount() {
+        return function.getPointsCount();
+    }
+
+    public long getModificationCount() {
+        return function.getModificationCount();
+    }
+
+    public FunctionPoint getPoint(int index) {
+        return function.getPoint(index);
+    }
+
+    public double integral(double a, double b) {
+        return function.integral(a, b);
+    }
+
+    public double getMinValue(double a, double b) {
+        return function.getMinValue(a, b);
+    }
+
+    public double getMaxValue(double a, double b) {
+        return function.getMaxValue(a, b);
+    }
+
+    public double getArgument(double y) {
+        return function.getArgument(y);
+    }
+
+    public void forEachPoint(int from, int to, PointConsumer consumer) {
+        function.forEachPoint(from, to, consumer);
+    }
+
+    public void forEachPoint(PointConsumer consumer) {
+        function.forEachPoint(consumer);
+    }
+
+    public void copyXs(double[] target, int offset) {
+        function.copyXs(target, offset);
+    }
+
+    public void copyYs(double[] target, int offset) {
+        function.copyYs(target, offset);
+    }
+
+    //EditBatch передает набор обернутой таблице, если она заменяет точки за один проход, иначе применяет его
+    //отдельными вызовами этой обертки
+    public EditResult applyEdits(EditBatch.Replacement replacement) {
+        if (function instanceof EditBatch.Replaceable)
+            return ((EditBatch.Replaceable) function).applyEdits(replacement);
+        return EditBatch.Replaceable.super.applyEdits(replacement);
+    }
+
+    public EditResult replacePoints(EditBatch.Replacement replacement) {
+        if (function instanceof EditBatch.Replaceable)
+            return ((EditBatch.Replaceable) function).replacePoints(replacement);
+        return replacement.applyByCalls(this);
+    }
+
+    public void setPoint(int index, FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        function.setPoint(index, point);
+    }
+
+    public double getPointX(int index) {
+        return function.getPointX(index);
+    }
+
+    public void setPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        function.setPointX(index, x);
+    }
+
+    public double getPointY(int index) {
+        return function.getPointY(index);
+    }
+
+    public void setPointY(int index, double y) {
+        function.setPointY(index, y);
+    }
+
+    public void deletePoint(int index) {
+        function.deletePoint(index);
+    }
+
+    public void addPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        function.addPoint(point);
+    }
+}
@@ -0,0 +1,447 @@
+package functions;
+
+//Табулированная функция с экономным хранением точек.
+//Абсциссы: X_GRID - только левая граница и шаг (сетка конструкторов), X_DELTA - смещения float от базы,
+//X_FULL - массив double. Ординаты: Y_FLOAT - float с допустимой погрешностью, Y_DOUBLE - массив double.
+//Абсциссы хранятся всегда без потерь: если изменение не укладывается в текущее представление,
+//таблица один раз переходит к более широкому (X_GRID -> X_DELTA -> X_FULL, Y_FLOAT -> Y_DOUBLE).
+//X_DELTA подходит, только если каждое смещение от базы точно представимо во float (двоичные дроби, целые
+//числа); на десятичной сетке (шаг 0.1 и т.п.) смещения float не представимы, и любая точка вне узлов сетки
+//сразу переводит таблицу в X_FULL
+public class CompactTabulatedFunction implements TabulatedFunction, EditBatch.Replaceable, SegmentSearch.Measured {
+    public static final int X_GRID = 0;
+    public static final int X_DELTA = 1;
+    public static final int X_FULL = 2;
+    public static final int Y_FLOAT = 0;
+    public static final int Y_DOUBLE = 1;
+
+    private final double EPSILON = 1e-9;
+    private final double yTolerance; //Допустимая погрешность ординат в режиме Y_FLOAT
+
+    private int xStorage;
+    private double gridLeft; //X_GRID: x(i) = gridLeft + (gridFirst + i) * gridStep
+    private double gridStep;
+    private int gridFirst; //Номер левой точки в сетке: после удаления левых точек узлы считаются от прежней левой границы
+    private double base; //X_DELTA: x(i) = base + xOffsets[i]
+    private float[] xOffsets;
+    private double[] xs; //X_FULL
+
+    private int yStorage;
+    private float[] floatYs;
+    private double[] ys;
+
+    private int length;
+    private long modificationCount; //Число изменений таблицы, см. getModificationCount
+    private final SegmentSearch.Abscissas abscissas = new SegmentSearch.Abscissas() { //Абсциссы для поиска отрезка
+        public double x(int index) {
+            return CompactTabulatedFunction.this.x(index);
+        }
+    };
+
+    //Точки сетки с нулевыми ординатами
+    public CompactTabulatedFunction(double leftX, double rightX, int pointsCount) {
+        this(leftX, rightX, new double[Math.max(pointsCount, 0)], 0);
+    }
+
+    //Ординаты хранятся как float, только если это не меняет ни одно значение
+    public CompactTabulatedFunction(double leftX, double rightX, double[] values) {
+        this(leftX, rightX, values, 0);
+    }
+
+    //Ординаты хранятся как float, если все они отличаются от своих float-значений не больше чем на yTolerance
+    public CompactTabulatedFunction(double leftX, double rightX, double[] values, double yTolerance) {
+        if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
+            throw new IllegalArgumentException("Right border must be greater than left border");
+        }
+
+        if (values == null || values.length < 2) { // Защита от null и пустого массива
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        if (!(yTolerance >= 0)) {
+            throw new IllegalArgumentException("Tolerance must be non-negative");
+        }
+
+        this.yTolerance = yTolerance;
+        this.length = values.length;
+        this.xStorage = X_GRID;
+        this.gridLeft = leftX;
+        this.gridStep = (rightX - leftX) / (length - 1); //Тот же шаг, что у конструкторов остальных реализаций
+        encodeYs(values.clone(), Y_FLOAT);
+    }
+
+    //Конструктор по упорядоченным точкам с заданными представлениями; если точки в них не укладываются,
+    //выбирается ближайшее более широкое
+    public CompactTabulatedFunction(FunctionPoint[] points, int xStorage, int yStorage, double yTolerance) {
+        if (points == null || points.length < 2) {
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        if (xStorage < X_GRID || xStorage > X_FULL || yStorage < Y_FLOAT || yStorage > Y_DOUBLE) {
+            throw new IllegalArgumentException("Unknown storage mode");
+        }
+
+        if (!(yTolerance >= 0)) {
+            throw new IllegalArgumentException("Tolerance must be non-negative");
+        }
+
+        double[] pointXs = new double[points.length];
+        double[] pointYs = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null || (i > 0 && points[i].getX() - EPSILON <= points[i-1].getX())) {
+                throw new IllegalArgumentException("Points must be ordered by x");
+            }
+            pointXs[i] = points[i].getX();
+            pointYs[i] = points[i].getY();
+        }
+
+        this.yTolerance = yTolerance;
+        this.length = points.length;
+        encodeXs(pointXs, xStorage);
+        encodeYs(pointYs, yStorage);
+    }
+
+    //Самое узкое представление абсцисс не уже minStorage, в котором values хранятся без потерь
+    private void encodeXs(double[] values, int minStorage) {
+        if (minStorage <= X_GRID) {
+            double left = values[0], step = (values[length-1] - left) / (length - 1);
+            boolean grid = true;
+            for (int i = 0; i < length && grid; i++)
+                grid = values[i] == left + i * step;
+            if (grid) {
+                xStorage = X_GRID;
+                gridLeft = left;
+                gridStep = step;
+                gridFirst = 0;
+                xOffsets = null;
+                xs = null;
+                return;
+            }
+        }
+
+        if (minStorage <= X_DELTA) {
+            double origin = values[0];
+            float[] offsets = new float[values.length];
+            boolean fits = true;
+            for (int i = 0; i < length && fits; i++) {
+                offsets[i] = (float) (values[i] - origin);
+                fits = origin + offsets[i] == values[i];
+            }
+            if (fits) {
+                xStorage = X_DELTA;
+                base = origin;
+                xOffsets = offsets;
+                xs = null;
+                return;
+            }
+        }
+
+        xStorage = X_FULL;
+        xs = values;
+        xOffsets = null;
+    }
+
+    private void encodeYs(double[] values, int minStorage) {
+        if (minStorage <= Y_FLOAT) {
+            float[] narrowed = new float[values.length];
+            boolean fits = true;
+            for (int i = 0; i < length && fits; i++) {
+                narrowed[i] = (float) values[i];
+                fits = fitsFloat(values[i], narrowed[i]);
+            }
+            if (fits) {
+                yStorage = Y_FLOAT;
+                floatYs = narrowed;
+                ys = null;
+                return;
+            }
+        }
+
+        yStorage = Y_DOUBLE;
+        ys = values;
+        floatYs = null;
+    }
+
+    private boolean fitsFloat(double value, float narrowed) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Float.isInfinite(narrowed))
+            return narrowed == value || (Double.isNaN(value) && Float.isNaN(narrowed)); //Переполнение float недопустимо
+        return Math.abs(narrowed - value) <= yTolerance;
+    }
+
+    //Переход к следующему, более широкому представлению абсцисс
+    private void widenXs() {
+        double[] values = new double[capacity()];
+        for (int i = 0; i < length; i++)
+            values[i] = x(i);
+        encodeXs(values, xStorage + 1);
+    }
+
+    private void widenYs() {
+        double[] values = new double[capacity()];
+        for (int i = 0; i < length; i++)
+            values[i] = y(i);
+        encodeYs(values, Y_DOUBLE);
+    }
+
+    private int capacity() {
+        return yStorage == Y_FLOAT ? floatYs.length : ys.length;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (capacity() >= minCapacity)
+            return;
+
+        int capacity = Math.max(minCapacity, capacity() + (capacity() >> 1));
+        if (xStorage == X_DELTA) {
+            float[] offsets = new float[capacity];
+            System.arraycopy(xOffsets, 0, offsets, 0, length);
+            xOffsets = offsets;
+        } else if (xStorage == X_FULL) {
+            double[] values = new double[capacity];
+            System.arraycopy(xs, 0, values, 0, length);
+            xs = values;
+        }
+        if (yStorage == Y_FLOAT) {
+            float[] values = new float[capacity];
+            System.arraycopy(floatYs, 0, values, 0, length);
+            floatYs = values;
+        } else {
+            double[] values = new double[capacity];
+            System.arraycopy(ys, 0, values, 0, length);
+            ys = values;
+        }
+    }
+
+    private double x(int index) {
+        if (xStorage == X_GRID)
+            return gridLeft + (gridFirst + index) * gridStep;
+        if (xStorage == X_DELTA)
+            return base + xOffsets[index];
+        return xs[index];
+    }
+
+    private double y(int index) {
+        return yStorage == Y_FLOAT ? floatYs[index] : ys[index];
+    }
+
+    //Можно ли записать x в точку index без смены представления (для X_GRID - только узел сетки с этим номером)
+    private boolean fitsX(int index, double x) {
+        if (xStorage == X_GRID)
+            return x == x(index);
+        if (xStorage == X_DELTA)
+            return base + (float) (x - base) == x;
+        return true;
+    }
+
+    private void storeX(int index, double x) {
+        if (xStorage == X_DELTA)
+            xOffsets[index] = (float) (x - base);
+        else if (xStorage == X_FULL)
+            xs[index] = x;
+    }
+
+    private void storeY(int index, double y) {
+        if (yStorage == Y_FLOAT && !fitsFloat(y, (float) y))
+            widenYs();
+        if (yStorage == Y_FLOAT)
+            floatYs[index] = (float) y;
+        else
+            ys[index] = y;
+    }
+
+    public int getXStorage() {
+        return xStorage;
+    }
+
+    public int getYStorage() {
+        return yStorage;
+    }
+
+    public double getYTolerance() {
+        return yTolerance;
+    }
+
+    public double getLeftDomainBorder() {
+        return x(0);
+    }
+
+    public double getRightDomainBorder() {
+        return x(length - 1);
+    }
+
+    public int getPointsCount() {
+        return length;
+    }
+
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    public double getFunctionValue(double x) {
+        if (!((x + EPSILON >= x(0)) && (x - EPSILON <= x(length - 1))))
+            return Double.NaN; //x в пределах области функции
+
+        int i = locateSegment(x);
+        double x1 = x(i), x2 = x(i + 1);
+        if (Math.abs(x - x1) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по ней y
+            return y(i);
+
+        if (Math.abs(x - x2) <= EPSILON)
+            return y(i + 1);
+
+        return y(i) + (x - x1) * (y(i + 1) - y(i)) / (x2 - x1); //Считаем значение по формуле
+    }
+
+    //Отрезок [x(i); x(i+1)]: наименьшее i, при котором x(i+1) + EPSILON >= x
+    private int locateSegment(double x) {
+        return SegmentSearch.locate(abscissas, length, xStorage == X_GRID ? gridStep : 0, x);
+    }
+
+    //Число шагов поиска отрезка для x (для метрик); 0 вне области определения
+    public int segmentSearchSteps(double x) {
+        if (!((x + EPSILON >= getLeftDomainBorder()) && (x - EPSILON <= getRightDomainBorder())))
+            return 0;
+
+        return SegmentSearch.steps(abscissas, length, xStorage == X_GRID ? gridStep : 0, x);
+    }
+
+    public FunctionPoint getPoint(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return new FunctionPoint(x(index), y(index));
+    }
+
+    public double getPointX(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return x(index);
+    }
+
+    public double getPointY(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return y(index);
+    }
+
+    public void forEachPoint(int from, int to, PointConsumer consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null");
+        }
+        if (from < 0 || from > to || to > length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        for (int i = from; i < to; i++)
+            consumer.accept(x(i), y(i));
+    }
+
+    public void setPoint(int index, FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= length || point == null) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        setPointX(index, point.getX());
+        storeY(index, point.getY());
+    }
+
+    public void setPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+
+        //Проверка попадания в интервалы
+        if ((index > 0 && x - EPSILON <= x(index - 1)) ||
+                (index < length - 1 && x + EPSILON >= x(index + 1))) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        while (!fitsX(index, x))
+            widenXs();
+        storeX(index, x);
+        modificationCount++;
+    }
+
+    public void setPointY(int index, double y) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        storeY(index, y);
+        modificationCount++;
+    }
+
+    public void deletePoint(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        if (length < 3) {
+            throw new IllegalStateException();
+        }
+
+        if (xStorage == X_GRID && index == 0) //Сетка сохраняется при удалении крайней точки: левая сдвигает начало
+            gridFirst++;
+        else if (xStorage == X_GRID && index != length - 1)
+            widenXs();
+        if (xStorage == X_DELTA)
+            System.arraycopy(xOffsets, index + 1, xOffsets, index, length - index - 1);
+        else if (xStorage == X_FULL)
+            System.arraycopy(xs, index + 1, xs, index, length - index - 1);
+        if (yStorage == Y_FLOAT)
+            System.arraycopy(floatYs, index + 1, floatYs, index, length - index - 1);
+        else
+            System.arraycopy(ys, index + 1, ys, index, length - index - 1);
+        length--;
+        modificationCount++;
+    }
+
+    public void addPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (point == null || Double.isNaN(point.getX())) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        double x = point.getX();
+        int low = 0, high = length; //Ищем место для новой точки по х: первый индекс, где x(i) + EPSILON >= x
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (x(mid) + EPSILON >= x)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        int index = low;
+        if (index < length && Math.abs(x - x(index)) <= EPSILON) { //Если совпадает с другой точкой
+            throw new InappropriateFunctionPointException();
+        }
+
+        if (xStorage == X_GRID && index < length) //Сетка сохраняется только при добавлении следующего ее узла справа
+            widenXs();
+        while (!fitsX(index, x))
+            widenXs();
+
+        ensureCapacity(length + 1);
+        if (xStorage == X_DELTA)
+            System.arraycopy(xOffsets, index, xOffsets, index + 1, length - index);
+        else if (xStorage == X_FULL)
+            System.arraycopy(xs, index, xs, index + 1, length - index);
+        if (yStorage == Y_FLOAT)
+            System.arraycopy(floatYs, index, floatYs, index + 1, length - index);
+        else
+            System.arraycopy(ys, index, ys, index + 1, length - index);
+        length++;
+        storeX(index, x);
+        storeY(index, point.getY());
+        modificationCount++;
+    }
+
+    //Замена всех точек набором EditBatch без проверок; точки кодируются заново, представления могут только расшириться
+    public EditResult replacePoints(EditBatch.Replacement replacement) {
+        this.length = replacement.length;
+        encodeXs(replacement.xs, xStorage);
+        encodeYs(replacement.ys, yStorage);
+        modificationCount++;
+        return EditResult.SUCCESS;
+    }
+}
@@ -0,0 +1,539 @@
+package functions;
+
+import java.lang.invoke.VarHandle;
+
+//Табулированная функция для одновременного чтения многими потоками при редких изменениях.
+//Чтение оптимистичное и без блокировок: поток запоминает версию, читает данные и проверяет,
+//что версия не изменилась (как StampedLock.tryOptimisticRead/validate, классы java.util в работе не используются).
+//Запись выполняется под монитором объекта: версия становится нечетной на время изменения и снова четной после него.
+public class ConcurrentTabulatedFunction implements TabulatedFunction, EditBatch.Replaceable, SegmentSearch.Measured {
+    private static final int OPTIMISTIC_ATTEMPTS = 64; //Затем чтение под монитором, чтобы частые записи не вызывали голодания
+
+    //Виды запросов по индексам, см. query
+    private static final int INTEGRAL = 0;
+    private static final int MIN_VALUE = 1;
+    private static final int MAX_VALUE = 2;
+    private static final int ARGUMENT = 3;
+
+    private final double EPSILON = 1e-9;
+
+    //Набор точек; при добавлении и удалении точки заменяется целиком, поэтому размер массивов и length всегда согласованы
+    private static final class State {
+        final double[] xs;
+        final double[] ys;
+        final int length;
+        final SegmentSearch.Abscissas abscissas = new SegmentSearch.Abscissas() { //Абсциссы для поиска отрезка
+            public double x(int index) {
+                return xs[index];
+            }
+        };
+
+        State(double[] xs, double[] ys, int length) {
+            this.xs = xs;
+            this.ys = ys;
+            this.length = length;
+        }
+    }
+
+    //Индексы для integral, getMinValue, getMaxValue и getArgument, построенные по точкам версии version.
+    //После публикации не изменяются; любая запись (в том числе изменение точек на месте) меняет версию,
+    //и следующий запрос строит индексы заново по согласованному набору точек
+    private static final class Indexes {
+        final long version;
+        final SegmentAreaIndex areas = new SegmentAreaIndex();
+        final ValueRangeIndex values = new ValueRangeIndex();
+
+        Indexes(long version, State s) {
+            this.version = version;
+            areas.reset(s.length - 1);
+            for (int i = 0; i < s.length - 1; i++)
+                areas.put(i, SegmentAreaIndex.trapezoid(s.xs[i], s.ys[i], s.xs[i+1], s.ys[i+1]));
+            areas.build();
+            values.reset(s.length);
+            for (int i = 0; i < s.length; i++)
+                values.put(i, s.ys[i]);
+            values.build();
+        }
+    }
+
+    private volatile long version; //Четное - данные согласованы, нечетное - идет запись
+    private State state;
+    private volatile Indexes indexes; //Последние построенные индексы; могут относиться к прежней версии
+
+    public ConcurrentTabulatedFunction(double leftX, double rightX, int pointsCount) {
+        this(leftX, rightX, new double[checkPointsCount(pointsCount)]);
+    }
+
+    public ConcurrentTabulatedFunction(double leftX, double rightX, double[] values) {
+        if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
+            throw new IllegalArgumentException("Right border must be greater than left border");
+        }
+
+        if (values == null || values.length < 2) { // Защита от null и пустого массива
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        int length = values.length;
+        double[] xs = new double[length];
+        double delta = (rightX - leftX) / (length - 1); //Создание точек через равные по х промежутки
+        for (int i = 0; i < length; i++)
+            xs[i] = leftX + i * delta;
+        this.state = new State(xs, values.clone(), length);
+    }
+
+    //Потокобезопасная копия произвольной табулированной функции
+    public ConcurrentTabulatedFunction(TabulatedFunction function) {
+        int length = function.getPointsCount();
+        double[] xs = new double[length];
+        double[] ys = new double[length];
+        for (int i = 0; i < length; i++) {
+            xs[i] = function.getPointX(i);
+            ys[i] = function.getPointY(i);
+        }
+        this.state = new State(xs, ys, length);
+    }
+
+    private static int checkPointsCount(int pointsCount) {
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+        return pointsCount;
+    }
+
+    //Данные, прочитанные после получения stamp, согласованы, если запись за это время не начиналась
+    private boolean validate(long stamp) {
+        VarHandle.acquireFence(); //Чтения данных не могут переместиться за повторное чтение версии
+        return (stamp & 1) == 0 && version == stamp;
+    }
+
+    private void beginWrite() {
+        version = version + 1;
+        VarHandle.storeStoreFence(); //Нечетная версия видна раньше изменяемых данных
+    }
+
+    private void endWrite() {
+        version = version + 1;
+    }
+
+    public double getLeftDomainBorder() {
+        return getBorder(false);
+    }
+
+    public double getRightDomainBorder() {
+        return getBorder(true);
+    }
+
+    private double getBorder(boolean right) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = version;
+            State s = state;
+            double border = right ? s.xs[s.length - 1] : s.xs[0];
+            if (validate(stamp))
+                return border;
+            Thread.onSpinWait();
+        }
+        synchronized (this) {
+            return right ? state.xs[state.length - 1] : state.xs[0];
+        }
+    }
+
+    public int getPointsCount() {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = version;
+            int length = state.length;
+            if (validate(stamp))
+                return length;
+            Thread.onSpinWait();
+        }
+        synchronized (this) {
+            return state.length;
+        }
+    }
+
+    //Каждая запись увеличивает версию на 2
+    public long getModificationCount() {
+        return version >>> 1;
+    }
+
+    public double getFunctionValue(double x) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = version;
+            double value = valueOf(state, x); //На несогласованных данных результат может быть любым, он отбрасывается
+            if (validate(stamp))
+                return value;
+            Thread.onSpinWait();
+        }
+        synchronized (this) {
+            return valueOf(state, x);
+        }
+    }
+
+    public void getFunctionValues(double[] args, int from, int to, double[] out) {
+        if (args == null || out == null || from < 0 || from > to || to > args.length || to > out.length)
+            throw new IllegalArgumentException("Invalid arguments range");
+
+        long stamp = version; //Сначала пробуем вычислить весь набор по одной версии
+        State s = state;
+        for (int k = from; k < to; k++)
+            out[k] = valueOf(s, args[k]);
+        if (validate(stamp))
+            return;
+
+        for (int k = from; k < to; k++) //Помешала запись - каждое значение проверяется отдельно
+            out[k] = getFunctionValue(args[k]);
+    }
+
+    private double valueOf(State s, double x) {
+        double[] xs = s.xs, ys = s.ys;
+        int length = s.length;
+        if ((x + EPSILON < xs[0]) || (x - EPSILON > xs[length-1]))
+            return Double.NaN; //x в пределах области функции
+
+        int low = SegmentSearch.locate(s.abscissas, length, 0, x); //Отрезок [x(i); x(i+1)]
+
+        double x1 = xs[low], x2 = xs[low+1];
+        if (Math.abs(x - x1) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по нему y
+            return ys[low];
+
+        if (Math.abs(x - x2) <= EPSILON)
+            return ys[low+1];
+
+        return ys[low] + (x - x1) * (ys[low+1] - ys[low]) / (x2 - x1); //Считаем значение по формуле
+    }
+
+    //Число шагов поиска отрезка для x (для метрик) по одной версии точек; 0 вне области определения
+    public int segmentSearchSteps(double x) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = version;
+            int steps = stepsOf(state, x);
+            if (validate(stamp))
+                return steps;
+            Thread.onSpinWait();
+        }
+        synchronized (this) {
+            return stepsOf(state, x);
+        }
+    }
+
+    private int stepsOf(final State s, double x) {
+        if ((x + EPSILON < s.xs[0]) || (x - EPSILON > s.xs[s.length-1]) || Double.isNaN(x))
+            return 0;
+
+        return SegmentSearch.steps(s.abscissas, s.length, 0, x);
+    }
+
+    //Индексы для версии stamp: опубликованные, если они построены по ней, иначе новые по набору s
+    private Indexes indexesFor(long stamp, State s) {
+        Indexes current = indexes;
+        return current != null && current.version == stamp ? current : new Indexes(stamp, s);
+    }
+
+    //Запросы по индексам выполняются оптимистично, как getFunctionValue: запись не ждет окончания запроса,
+    //а индексы, построенные по несогласованным точкам, отбрасываются вместе с результатом
+    public double integral(double a, double b) {
+        return query(INTEGRAL, a, b);
+    }
+
+    public double getMinValue(double a, double b) {
+        return query(MIN_VALUE, a, b);
+    }
+
+    public double getMaxValue(double a, double b) {
+        return query(MAX_VALUE, a, b);
+    }
+
+    public double getArgument(double y) {
+        return query(ARGUMENT, y, 0);
+    }
+
+    private double query(int kind, double a, double b) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = version;
+            if ((stamp & 1) == 0) { //Во время записи индексы не строятся
+                State s = state;
+                Indexes index = indexesFor(stamp, s);
+                double value = queryOf(kind, s, index, a, b);
+                if (validate(stamp)) {
+                    indexes = index;
+                    return value;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        synchronized (this) {
+            Indexes index = indexesFor(version, state);
+            indexes = index;
+            return queryOf(kind, state, index, a, b);
+        }
+    }
+
+    private double queryOf(int kind, State s, Indexes index, double a, double b) {
+        switch (kind) {
+            case INTEGRAL:
+                return integralOf(s, index, a, b);
+            case MIN_VALUE:
+                return extremumOf(s, index, a, b, false);
+            case MAX_VALUE:
+                return extremumOf(s, index, a, b, true);
+            default:
+                return argumentOf(s, index, a);
+        }
+    }
+
+    private double integralOf(State s, Indexes index, double a, double b) {
+        double left = s.xs[0], right = s.xs[s.length-1];
+        if (!((a + EPSILON >= left) && (a - EPSILON <= right) && (b + EPSILON >= left) && (b - EPSILON <= right)))
+            return Double.NaN; //a и b в пределах области функции
+
+        return areaBefore(s, index, Math.min(Math.max(b, left), right)) - areaBefore(s, index, Math.min(Math.max(a, left), right));
+    }
+
+    //Площадь под ломаной от левой границы до x: целые отрезки по индексу и часть отрезка, содержащего x
+    private double areaBefore(State s, Indexes index, double x) {
+        int i = SegmentSearch.locate(s.abscissas, s.length, 0, x);
+        double x1 = s.xs[i], y1 = s.ys[i], x2 = s.xs[i+1], y2 = s.ys[i+1];
+        double y = y1 + (x - x1) * (y2 - y1) / (x2 - x1);
+        return index.areas.prefix(i) + SegmentAreaIndex.trapezoid(x1, y1, x, y);
+    }
+
+    //Значения на концах [a; b] и наименьшее (наибольшее) значение точек между ними по дереву отрезков
+    private double extremumOf(State s, Indexes index, double a, double b, boolean maximum) {
+        double left = s.xs[0], right = s.xs[s.length-1];
+        if (!((a + EPSILON >= left) && (a - EPSILON <= right) && (b + EPSILON >= left) && (b - EPSILON <= right)))
+            return Double.NaN; //a и b в пределах области функции
+
+        double low = Math.min(Math.max(Math.min(a, b), left), right), high = Math.min(Math.max(Math.max(a, b), left), right);
+        double atLow = valueOf(s, low), atHigh = valueOf(s, high);
+        double result = maximum ? Math.max(atLow, atHigh) : Math.min(atLow, atHigh);
+        int from = SegmentSearch.locate(s.abscissas, s.length, 0, low) + 1; //Точки строго между концами
+        int to = SegmentSearch.locate(s.abscissas, s.length, 0, high) + 1;
+        if (from < to)
+            result = maximum ? Math.max(result, index.values.max(from, to)) : Math.min(result, index.values.min(from, to));
+        return result;
+    }
+
+    //Наименьший x со значением y: первая точка, достигающая y, находится спуском по дереву отрезков
+    private double argumentOf(State s, Indexes index, double y) {
+        double first = s.ys[0];
+        if (y == first)
+            return s.xs[0];
+        if (!(first < y || first > y)) //y или первое значение - NaN
+            return Double.NaN;
+
+        int j = index.values.first(y, first < y);
+        if (j < 1) //j = 0 возможно только на несогласованных данных, результат будет отброшен
+            return Double.NaN;
+        return ValueScan.crossing(s.xs[j-1], s.ys[j-1], s.xs[j], s.ys[j], y);
+    }
+
+    public FunctionPoint getPoint(int index) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = version;
+            State s = state;
+            boolean inRange = index >= 0 && index < s.length;
+            double x = inRange ? s.xs[index] : 0;
+            double y = inRange ? s.ys[index] : 0;
+            if (validate(stamp)) {
+                if (!inRange) {
+                    throw new FunctionPointIndexOutOfBoundsException();
+                }
+                return new FunctionPoint(x, y);
+            }
+            Thread.onSpinWait();
+        }
+        synchronized (this) {
+            if (index < 0 || index >= state.length) {
+                throw new FunctionPointIndexOutOfBoundsException();
+            }
+            return new FunctionPoint(state.xs[index], state.ys[index]);
+        }
+    }
+
+    public double getPointX(int index) {
+        return getCoordinate(index, false);
+    }
+
+    public double getPointY(int index) {
+        return getCoordinate(index, true);
+    }
+
+    private double getCoordinate(int index, boolean ordinate) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = version;
+            State s = state;
+            boolean inRange = index >= 0 && index < s.length;
+            double value = inRange ? (ordinate ? s.ys[index] : s.xs[index]) : 0;
+            if (validate(stamp)) {
+                if (!inRange) { //Решение о выходе за границы принимается только по согласованным данным
+                    throw new FunctionPointIndexOutOfBoundsException();
+                }
+                return value;
+            }
+            Thread.onSpinWait();
+        }
+        synchronized (this) {
+            if (index < 0 || index >= state.length) {
+                throw new FunctionPointIndexOutOfBoundsException();
+            }
+            return ordinate ? state.ys[index] : state.xs[index];
+        }
+    }
+
+    //Обход под монитором, чтобы consumer видел согласованный набор точек; записи на это время ждут
+    public synchronized void forEachPoint(int from, int to, PointConsumer consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null");
+        }
+        if (from < 0 || from > to || to > state.length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        State s = state;
+        for (int i = from; i < to; i++)
+            consumer.accept(s.xs[i], s.ys[i]);
+    }
+
+    public synchronized void forEachPoint(PointConsumer consumer) {
+        forEachPoint(0, state.length, consumer);
+    }
+
+    public void copyXs(double[] target, int offset) {
+        copyCoordinates(target, offset, false);
+    }
+
+    public void copyYs(double[] target, int offset) {
+        copyCoordinates(target, offset, true);
+    }
+
+    private void copyCoordinates(double[] target, int offset, boolean ordinates) {
+        if (target == null || offset < 0) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+
+        long stamp = version; //Оптимистичное копирование; при помехе записи копируем заново под монитором
+        State s = state;
+        if (offset <= target.length - s.length) {
+            System.arraycopy(ordinates ? s.ys : s.xs, 0, target, offset, s.length);
+            if (validate(stamp))
+                return;
+        }
+        synchronized (this) {
+            if (offset > target.length - state.length) {
+                throw new IllegalArgumentException("Target array is too small");
+            }
+            System.arraycopy(ordinates ? state.ys : state.xs, 0, target, offset, state.length);
+        }
+    }
+
+    public synchronized void setPoint(int index, FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= state.length || point == null) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        checkPointX(index, point.getX());
+
+        beginWrite();
+        state.xs[index] = point.getX();
+        state.ys[index] = point.getY();
+        endWrite();
+    }
+
+    public synchronized void setPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= state.length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        checkPointX(index, x);
+
+        beginWrite();
+        state.xs[index] = x;
+        endWrite();
+    }
+
+    //Проверка попадания в интервал между соседними точками
+    private void checkPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        double[] xs = state.xs;
+        if ((index > 0 && x - EPSILON <= xs[index-1]) ||
+                (index < state.length - 1 && x + EPSILON >= xs[index+1])) {
+            throw new InappropriateFunctionPointException();
+        }
+    }
+
+    public synchronized void setPointY(int index, double y) {
+        if (index < 0 || index >= state.length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+
+        beginWrite();
+        state.ys[index] = y;
+        endWrite();
+    }
+
+    public synchronized void deletePoint(int index) {
+        State s = state;
+        if (index < 0 || index >= s.length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        if (s.length < 3) {
+            throw new IllegalStateException();
+        }
+
+        double[] xs = new double[s.length - 1]; //Новый набор готовится до начала записи
+        double[] ys = new double[s.length - 1];
+        System.arraycopy(s.xs, 0, xs, 0, index);
+        System.arraycopy(s.ys, 0, ys, 0, index);
+        System.arraycopy(s.xs, index + 1, xs, index, s.length - index - 1);
+        System.arraycopy(s.ys, index + 1, ys, index, s.length - index - 1);
+        publish(new State(xs, ys, s.length - 1));
+    }
+
+    public synchronized void addPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (point == null) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        State s = state;
+        double x = point.getX();
+        int low = 0, high = s.length; //Ищем место для новой точки по х: первый индекс, где x(i) + EPSILON >= x
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (s.xs[mid] + EPSILON >= x)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        int index = low;
+        if (index < s.length && Math.abs(x - s.xs[index]) <= EPSILON) { //Если совпадает с другой точкой
+            throw new InappropriateFunctionPointException();
+        }
+
+        double[] xs = new double[s.length + 1];
+        double[] ys = new double[s.length + 1];
+        System.arraycopy(s.xs, 0, xs, 0, index);
+        System.arraycopy(s.ys, 0, ys, 0, index);
+        xs[index] = x;
+        ys[index] = point.getY();
+        System.arraycopy(s.xs, index, xs, index + 1, s.length - index);
+        System.arraycopy(s.ys, index, ys, index + 1, s.length - index);
+        publish(new State(xs, ys, s.length + 1));
+    }
+
+    private void publish(State newState) {
+        beginWrite();
+        state = newState;
+        endWrite();
+    }
+
+    //Проверка набора EditBatch и замена под монитором записи: между чтением точек и публикацией нового состояния
+    //таблицу никто не изменит, а читатели видят только прежнее или новое состояние
+    public synchronized EditResult applyEdits(EditBatch.Replacement replacement) {
+        return EditBatch.Replaceable.super.applyEdits(replacement);
+    }
+
+    //Замена всех точек набором EditBatch без проверок; его массивы публикуются как новое состояние без копирования
+    public synchronized EditResult replacePoints(EditBatch.Replacement replacement) {
+        publish(new State(replacement.xs, replacement.ys, replacement.length));
+        return EditResult.SUCCESS;
+    }
+}
@@ -0,0 +1,357 @@
+package functions;
+
+//Набор изменений табулированной функции, применяемых вместе. apply() проверяет весь набор на копии точек
+//и либо заменяет точки функции одним проходом перестроения, либо оставляет функцию нетронутой и сообщает
+//о первой ошибке в EditResult (без исключений). Номера точек в операциях относятся к таблице до применения;
+//добавляемые точки упорядочиваются по x вместе с остальными. Таблицы пакета и обертки над ними заменяют точки
+//сами (Replaceable), остальные реализации изменяются отдельными вызовами (Replacement.applyByCalls)
+public final class EditBatch {
+    private static final double EPSILON = 1e-9;
+    private static final int SET_X = 1; //Виды операций - битовые флаги, чтобы отмечать изменения одной точки
+    private static final int SET_Y = 2;
+    private static final int DELETE = 4;
+    private static final int ADD = 8;
+
+    private final TabulatedFunction function;
+    private int[] kinds = new int[16];
+    private int[] indices = new int[16];
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private int count;
+
+    public EditBatch(TabulatedFunction function) {
+        if (function == null) {
+            throw new IllegalArgumentException("Function must not be null");
+        }
+        this.function = function;
+    }
+
+    private EditBatch add(int kind, int index, double x, double y) {
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            int[] newKinds = new int[capacity];
+            int[] newIndices = new int[capacity];
+            double[] newXs = new double[capacity];
+            double[] newYs = new double[capacity];
+            System.arraycopy(kinds, 0, newKinds, 0, count);
+            System.arraycopy(indices, 0, newIndices, 0, count);
+            System.arraycopy(xs, 0, newXs, 0, count);
+            System.arraycopy(ys, 0, newYs, 0, count);
+            kinds = newKinds;
+            indices = newIndices;
+            xs = newXs;
+            ys = newYs;
+        }
+        kinds[count] = kind;
+        indices[count] = index;
+        xs[count] = x;
+        ys[count] = y;
+        count++;
+        return this;
+    }
+
+    public EditBatch setPoint(int index, double x, double y) {
+        return add(SET_X | SET_Y, index, x, y);
+    }
+
+    public EditBatch setPointX(int index, double x) {
+        return add(SET_X, index, x, 0);
+    }
+
+    public EditBatch setPointY(int index, double y) {
+        return add(SET_Y, index, 0, y);
+    }
+
+    public EditBatch deletePoint(int index) {
+        return add(DELETE, index, 0, 0);
+    }
+
+    public EditBatch addPoint(double x, double y) {
+        return add(ADD, -1, x, y);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    //Набор после применения не очищается: его можно применить повторно или очистить через clear
+    public EditResult apply() {
+        Replacement replacement = new Replacement(this);
+        if (function instanceof Replaceable)
+            return ((Replaceable) function).applyEdits(replacement);
+        EditResult result = replacement.merge(function);
+        return result.isApplied() ? replacement.applyByCalls(function) : result;
+    }
+
+    //Проверка набора по текущим точкам source и построение новых точек в replacement; source не изменяется
+    private EditResult merge(TabulatedFunction source, Replacement replacement) {
+        int n = source.getPointsCount();
+        double[] oldXs = new double[n];
+        double[] oldYs = new double[n];
+        source.copyXs(oldXs, 0);
+        source.copyYs(oldYs, 0);
+        double[] editedXs = oldXs.clone(); //Точки таблицы с изменениями x и y
+        double[] editedYs = oldYs.clone();
+
+        int[] flags = new int[n]; //Изменения каждой точки таблицы
+        int[] xOwners = new int[n]; //Операция, задавшая x точки, или -1
+        int[] owners = new int[n]; //Первая операция, изменившая точку, или -1
+        for (int i = 0; i < n; i++) {
+            xOwners[i] = -1;
+            owners[i] = -1;
+        }
+
+        int added = 0, deleted = 0;
+        for (int k = 0; k < count; k++) {
+            int kind = kinds[k];
+            if ((kind & (SET_X | ADD)) != 0 && Double.isNaN(xs[k]))
+                return new EditResult(EditResult.ORDER_VIOLATION, k);
+            if (kind == ADD) {
+                added++;
+                continue;
+            }
+
+            int index = indices[k];
+            if (index < 0 || index >= n)
+                return new EditResult(EditResult.INDEX_OUT_OF_BOUNDS, k);
+            if ((flags[index] & (kind | DELETE)) != 0 || (kind == DELETE && flags[index] != 0))
+                return new EditResult(EditResult.CONFLICTING_EDITS, k);
+            flags[index] |= kind;
+            if (owners[index] < 0)
+                owners[index] = k;
+            if (kind == DELETE)
+                deleted++;
+            if ((kind & SET_X) != 0) {
+                editedXs[index] = xs[k];
+                xOwners[index] = k;
+            }
+            if ((kind & SET_Y) != 0)
+                editedYs[index] = ys[k];
+        }
+
+        int total = n - deleted + added;
+        if (total < 2)
+            return new EditResult(EditResult.TOO_FEW_POINTS, -1);
+
+        double[] addedXs = new double[added]; //Добавляемые точки упорядочиваются по x вместе с номерами операций
+        double[] addedOps = new double[added];
+        for (int k = 0, j = 0; k < count; k++) {
+            if (kinds[k] == ADD) {
+                addedXs[j] = xs[k];
+                addedOps[j++] = k;
+            }
+        }
+        Sorting.sort(addedXs, addedOps, 0, added);
+
+        //Слияние оставшихся точек (в прежнем порядке) с добавляемыми и проверка возрастания x
+        double[] newXs = new double[total];
+        double[] newYs = new double[total];
+        int[] sources = new int[total];
+        int[] operations = new int[total];
+        int i = 0, j = 0, m = 0, previousOp = -1;
+        while (m < total) {
+            if (i < n && flags[i] == DELETE) {
+                i++;
+                continue;
+            }
+            double x, y;
+            int op;
+            if (j == added || (i < n && editedXs[i] <= addedXs[j])) {
+                x = editedXs[i];
+                y = editedYs[i];
+                op = xOwners[i];
+                sources[m] = i;
+                operations[m] = owners[i++];
+            } else {
+                op = (int) addedOps[j++];
+                x = xs[op];
+                y = ys[op];
+                sources[m] = -1;
+                operations[m] = op;
+            }
+            if (m > 0 && !(x - EPSILON > newXs[m-1]))
+                return new EditResult(EditResult.ORDER_VIOLATION, op >= 0 ? op : previousOp);
+            newXs[m] = x;
+            newYs[m++] = y;
+            previousOp = op;
+        }
+
+        replacement.xs = newXs;
+        replacement.ys = newYs;
+        replacement.length = total;
+        replacement.sources = sources;
+        replacement.operations = operations;
+        replacement.oldXs = oldXs;
+        replacement.oldYs = oldYs;
+        return EditResult.SUCCESS;
+    }
+
+    //Таблицы, точки которых EditBatch заменяет за один проход без промежуточных состояний. Методы интерфейса
+    //открытые, но вызвать их вне пакета нельзя: тип Replacement там недоступен
+    interface Replaceable extends TabulatedFunction {
+        //Замена всех точек проверенным набором; EditResult.SUCCESS или сообщение о том, что таблица сохранила
+        //не все изменения
+        EditResult replacePoints(Replacement replacement);
+
+        //Проверка набора по текущим точкам и замена. Таблицы, которые пишут под блокировкой, выполняют под ней
+        //оба шага, чтобы между ними таблицу никто не изменил; обертки передают набор обернутой таблице
+        default EditResult applyEdits(Replacement replacement) {
+            EditResult result = replacement.merge(this);
+            return result.isApplied() ? replacePoints(replacement) : result;
+        }
+    }
+
+    //Набор, проверенный по текущим точкам таблицы (см. merge): новые точки по возрастанию x и их происхождение.
+    //Массивы создаются для одной замены, и после нее EditBatch их не использует: реализация может оставить их
+    //себе без копирования. Длина xs и ys равна length
+    static final class Replacement {
+        private final EditBatch batch;
+        double[] xs;
+        double[] ys;
+        int length;
+        private int[] sources; //Номер прежней точки для каждой новой или -1 для добавленной
+        private int[] operations; //Первая операция набора, добавившая или изменившая точку, или -1
+        private double[] oldXs; //Точки таблицы до применения
+        private double[] oldYs;
+
+        private Replacement(EditBatch batch) {
+            this.batch = batch;
+        }
+
+        EditResult merge(TabulatedFunction source) {
+            return batch.merge(source, this);
+        }
+
+        //Первая операция набора среди новых точек с номерами [0; count), или -1, если они не изменялись
+        int firstOperation(int count) {
+            int first = -1;
+            for (int m = 0; m < count; m++) {
+                if (operations[m] >= 0 && (first < 0 || operations[m] < first))
+                    first = operations[m];
+            }
+            return first;
+        }
+
+        //Номер точки с абсциссой x в таблице, где она точно есть
+        private static int indexOf(TabulatedFunction target, double x) {
+            int low = 0, high = target.getPointsCount() - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (target.getPointX(mid) < x)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        //Есть ли прежняя точка ближе EPSILON к x
+        private boolean nearOldPoint(double x) {
+            int low = 0, high = oldXs.length; //Первая прежняя точка правее x - EPSILON
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (oldXs[mid] + EPSILON >= x)
+                    high = mid;
+                else
+                    low = mid + 1;
+            }
+            return low < oldXs.length && oldXs[low] - EPSILON <= x;
+        }
+
+        //Изменение отдельными вызовами для таблиц без замены за один проход. Порядок такой, что таблица все время
+        //упорядочена и в ней не меньше двух точек: сначала добавления, которые не совпадают с прежними точками
+        //и не лежат на пути сдвигаемых, затем удаления справа налево, сдвиги влево слева направо, сдвиги вправо
+        //справа налево, ординаты и остальные добавления. Если удаления оставили бы меньше двух точек, прежние
+        //точки заменяются новыми по порядку номеров (applyByPosition)
+        EditResult applyByCalls(TabulatedFunction target) {
+            int n = oldXs.length;
+            boolean[] kept = new boolean[n];
+            int[] rightSources = new int[length]; //Ближайшая справа оставшаяся прежняя точка или -1
+            for (int m = length - 1, right = -1; m >= 0; m--) {
+                rightSources[m] = right;
+                if (sources[m] >= 0) {
+                    right = sources[m];
+                    kept[right] = true;
+                }
+            }
+
+            boolean[] early = new boolean[length];
+            int survivors = 0, earlyAdds = 0;
+            for (int m = 0, left = -1; m < length; m++) {
+                if (sources[m] >= 0) {
+                    left = sources[m];
+                    survivors++;
+                    continue;
+                }
+                double x = xs[m];
+                int right = rightSources[m];
+                early[m] = !nearOldPoint(x) && (left < 0 || oldXs[left] + EPSILON < x) &&
+                        (right < 0 || x + EPSILON < oldXs[right]);
+                if (early[m])
+                    earlyAdds++;
+            }
+
+            try {
+                if (survivors < n && survivors + earlyAdds < 2)
+                    return applyByPosition(target);
+
+                for (int m = 0; m < length; m++) {
+                    if (early[m])
+                        target.addPoint(new FunctionPoint(xs[m], ys[m]));
+                }
+                for (int i = n - 1; i >= 0; i--) {
+                    if (!kept[i])
+                        target.deletePoint(indexOf(target, oldXs[i]));
+                }
+                for (int m = 0; m < length; m++) {
+                    int i = sources[m];
+                    if (i >= 0 && xs[m] < oldXs[i])
+                        target.setPointX(indexOf(target, oldXs[i]), xs[m]);
+                }
+                for (int m = length - 1; m >= 0; m--) {
+                    int i = sources[m];
+                    if (i >= 0 && xs[m] > oldXs[i])
+                        target.setPointX(indexOf(target, oldXs[i]), xs[m]);
+                }
+                for (int m = 0; m < length; m++) {
+                    int i = sources[m];
+                    if (i >= 0 && Double.doubleToRawLongBits(ys[m]) != Double.doubleToRawLongBits(oldYs[i]))
+                        target.setPointY(indexOf(target, xs[m]), ys[m]);
+                }
+                for (int m = 0; m < length; m++) {
+                    if (sources[m] < 0 && !early[m])
+                        target.addPoint(new FunctionPoint(xs[m], ys[m]));
+                }
+            } catch (InappropriateFunctionPointException e) {
+                throw new IllegalStateException("Function rejected a validated edit", e);
+            }
+            return EditResult.SUCCESS;
+        }
+
+        //Прежняя точка с номером i становится новой точкой с тем же номером: лишние прежние точки удаляются
+        //справа, недостающие новые добавляются после замены. Порядок точек при замене сохраняется, поэтому
+        //сдвиги влево идут слева направо, а вправо - справа налево
+        private EditResult applyByPosition(TabulatedFunction target) throws InappropriateFunctionPointException {
+            int n = oldXs.length, common = Math.min(n, length);
+            for (int i = n - 1; i >= common; i--)
+                target.deletePoint(i);
+            for (int i = 0; i < common; i++) {
+                if (xs[i] < oldXs[i])
+                    target.setPoint(i, new FunctionPoint(xs[i], ys[i]));
+            }
+            for (int i = common - 1; i >= 0; i--) {
+                if (xs[i] > oldXs[i])
+                    target.setPoint(i, new FunctionPoint(xs[i], ys[i]));
+                else if (xs[i] == oldXs[i] && Double.doubleToRawLongBits(ys[i]) != Double.doubleToRawLongBits(oldYs[i]))
+                    target.setPointY(i, ys[i]);
+            }
+            for (int m = common; m < length; m++)
+                target.addPoint(new FunctionPoint(xs[m], ys[m]));
+            return EditResult.SUCCESS;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package functions;
+
+//Результат применения EditBatch: состояние и номер операции в наборе, из-за которой набор отклонен
+public final class EditResult {
+    public static final int APPLIED = 0;
+    public static final int INDEX_OUT_OF_BOUNDS = 1; //Номер точки вне таблицы
+    public static final int CONFLICTING_EDITS = 2; //Точка удаляется и изменяется или изменяется дважды
+    public static final int ORDER_VIOLATION = 3; //После изменений x не возрастают (совпадение точек, NaN)
+    public static final int TOO_FEW_POINTS = 4; //После изменений осталось меньше двух точек
+    //Набор применен, но окно StreamingTabulatedFunction сразу отбросило добавленную или измененную им точку
+    public static final int WINDOW_DROPPED = 5;
+
+    static final EditResult SUCCESS = new EditResult(APPLIED, -1);
+
+    private final int status;
+    private final int operation;
+
+    EditResult(int status, int operation) {
+        this.status = status;
+        this.operation = operation;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isApplied() {
+        return status == APPLIED || status == WINDOW_DROPPED;
+    }
+
+    //Номер операции в порядке добавления в набор: отклонившей набор или первой из отброшенных окном;
+    //-1, если набор применен полностью или ошибку нельзя связать с одной операцией
+    public int getOperation() {
+        return operation;
+    }
+}
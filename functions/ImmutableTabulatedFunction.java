@@ -0,0 +1,373 @@
+package functions;
+
+//Неизменяемая табулированная функция. Вместо изменения методы with... возвращают новую версию,
+//которая разделяет с исходной все узлы дерева, кроме O(log n) узлов на пути к измененной точке.
+//Методы изменения интерфейса TabulatedFunction выбрасывают UnsupportedOperationException
+public final class ImmutableTabulatedFunction implements TabulatedFunction, SegmentSearch.Measured {
+    private static final double EPSILON = 1e-9;
+
+    //Неизменяемый узел AVL-дерева, упорядоченного по x; size - число узлов в поддереве для доступа по номеру
+    private static final class TreeNode {
+        final double x;
+        final double y;
+        final TreeNode left;
+        final TreeNode right;
+        final int height;
+        final int size;
+
+        TreeNode(double x, double y, TreeNode left, TreeNode right) {
+            this.x = x;
+            this.y = y;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    private final TreeNode root;
+
+    private ImmutableTabulatedFunction(TreeNode root) {
+        this.root = root;
+    }
+
+    public ImmutableTabulatedFunction(double leftX, double rightX, double[] values) {
+        if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
+            throw new IllegalArgumentException("Right border must be greater than left border");
+        }
+
+        if (values == null || values.length < 2) { // Защита от null и пустого массива
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        int length = values.length;
+        double[] xs = new double[length];
+        double delta = (rightX - leftX) / (length - 1); //Создание точек через равные по х промежутки
+        for (int i = 0; i < length; i++)
+            xs[i] = leftX + i * delta;
+        this.root = build(xs, values, 0, length);
+    }
+
+    //Неизменяемая копия произвольной табулированной функции
+    public static ImmutableTabulatedFunction copyOf(TabulatedFunction function) {
+        if (function instanceof ImmutableTabulatedFunction) {
+            return (ImmutableTabulatedFunction) function;
+        }
+        int length = function.getPointsCount();
+        double[] xs = new double[length];
+        double[] ys = new double[length];
+        for (int i = 0; i < length; i++) {
+            xs[i] = function.getPointX(i);
+            ys[i] = function.getPointY(i);
+        }
+        return fromOrderedPoints(xs, ys, length);
+    }
+
+    //Строит версию из первых length упорядоченных по x точек за O(n)
+    static ImmutableTabulatedFunction fromOrderedPoints(double[] xs, double[] ys, int length) {
+        return new ImmutableTabulatedFunction(build(xs, ys, 0, length));
+    }
+
+    private static TreeNode build(double[] xs, double[] ys, int from, int to) {
+        if (from >= to)
+            return null;
+        int mid = (from + to) >>> 1;
+        return new TreeNode(xs[mid], ys[mid], build(xs, ys, from, mid), build(xs, ys, mid + 1, to));
+    }
+
+    private static int size(TreeNode node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(TreeNode node) {
+        return node == null ? 0 : node.height;
+    }
+
+    //Новый узел (x, y) с поддеревьями left и right с восстановлением AVL-баланса поворотами
+    private static TreeNode balance(double x, double y, TreeNode left, TreeNode right) {
+        int leftHeight = height(left), rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right))
+                return new TreeNode(left.x, left.y, left.left, new TreeNode(x, y, left.right, right));
+            TreeNode pivot = left.right;
+            return new TreeNode(pivot.x, pivot.y,
+                    new TreeNode(left.x, left.y, left.left, pivot.left),
+                    new TreeNode(x, y, pivot.right, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left))
+                return new TreeNode(right.x, right.y, new TreeNode(x, y, left, right.left), right.right);
+            TreeNode pivot = right.left;
+            return new TreeNode(pivot.x, pivot.y,
+                    new TreeNode(x, y, left, pivot.left),
+                    new TreeNode(right.x, right.y, pivot.right, right.right));
+        }
+        return new TreeNode(x, y, left, right);
+    }
+
+    private static TreeNode insert(TreeNode node, double x, double y) {
+        if (node == null)
+            return new TreeNode(x, y, null, null);
+        if (x < node.x)
+            return balance(node.x, node.y, insert(node.left, x, y), node.right);
+        return balance(node.x, node.y, node.left, insert(node.right, x, y));
+    }
+
+    private static TreeNode removeByIndex(TreeNode node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize)
+            return balance(node.x, node.y, removeByIndex(node.left, index), node.right);
+        if (index > leftSize)
+            return balance(node.x, node.y, node.left, removeByIndex(node.right, index - leftSize - 1));
+        if (node.left == null)
+            return node.right;
+        if (node.right == null)
+            return node.left;
+        TreeNode successor = node.right; //Замещаем удаляемую точку следующей за ней
+        while (successor.left != null)
+            successor = successor.left;
+        return balance(successor.x, successor.y, node.left, removeByIndex(node.right, 0));
+    }
+
+    //Копирование пути до точки с номером index с заменой ее координат
+    private static TreeNode replace(TreeNode node, int index, double x, double y) {
+        int leftSize = size(node.left);
+        if (index < leftSize)
+            return new TreeNode(node.x, node.y, replace(node.left, index, x, y), node.right);
+        if (index > leftSize)
+            return new TreeNode(node.x, node.y, node.left, replace(node.right, index - leftSize - 1, x, y));
+        return new TreeNode(x, y, node.left, node.right);
+    }
+
+    private TreeNode getNodeByIndex(int index) {
+        if (index < 0 || index >= root.size) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+
+        TreeNode node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    public double getLeftDomainBorder() {
+        TreeNode node = root;
+        while (node.left != null)
+            node = node.left;
+        return node.x;
+    }
+
+    public double getRightDomainBorder() {
+        TreeNode node = root;
+        while (node.right != null)
+            node = node.right;
+        return node.x;
+    }
+
+    public int getPointsCount() {
+        return root.size;
+    }
+
+    //Функция не изменяется, новые версии - отдельные объекты
+    public long getModificationCount() {
+        return 0;
+    }
+
+    public double getFunctionValue(double x) {
+        if ((x + EPSILON < getLeftDomainBorder()) || (x - EPSILON > getRightDomainBorder()))
+            return Double.NaN; //x в пределах области функции
+
+        //Правый конец отрезка - первый узел с x(j) + EPSILON >= x, левый - предшествующий ему
+        TreeNode node = root, p1 = null, p2 = null;
+        while (node != null) {
+            if (node.x + EPSILON >= x) {
+                p2 = node;
+                node = node.left;
+            } else {
+                p1 = node;
+                node = node.right;
+            }
+        }
+        if (p2 == null) //x = NaN
+            return Double.NaN;
+        if (p1 == null) { //x у левой границы - первый отрезок
+            p1 = getNodeByIndex(0);
+            p2 = getNodeByIndex(1);
+        }
+
+        if (Math.abs(x - p1.x) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по ней y
+            return p1.y;
+
+        if (Math.abs(x - p2.x) <= EPSILON)
+            return p2.y;
+
+        return p1.y + (x - p1.x) * (p2.y - p1.y) / (p2.x - p1.x); //Считаем значение по формуле
+    }
+
+    //Число узлов на пути спуска getFunctionValue (для метрик); 0 вне области определения
+    public int segmentSearchSteps(double x) {
+        if (!((x + EPSILON >= getLeftDomainBorder()) && (x - EPSILON <= getRightDomainBorder())))
+            return 0;
+
+        int steps = 0;
+        for (TreeNode node = root; node != null; steps++)
+            node = node.x + EPSILON >= x ? node.left : node.right;
+        return steps;
+    }
+
+    public FunctionPoint getPoint(int index) {
+        TreeNode node = getNodeByIndex(index);
+        return new FunctionPoint(node.x, node.y);
+    }
+
+    public double getPointX(int index) {
+        return getNodeByIndex(index).x;
+    }
+
+    public double getPointY(int index) {
+        return getNodeByIndex(index).y;
+    }
+
+    //Симметричный обход поддерева по номерам [from; to) внутри него, глубина рекурсии - высота дерева
+    private static void visit(TreeNode node, int from, int to, PointConsumer consumer) {
+        while (node != null && from < to) {
+            int leftSize = size(node.left);
+            if (from < leftSize)
+                visit(node.left, from, Math.min(to, leftSize), consumer);
+            if (from <= leftSize && leftSize < to)
+                consumer.accept(node.x, node.y);
+            from = Math.max(0, from - leftSize - 1); //Правое поддерево - без рекурсии
+            to -= leftSize + 1;
+            node = node.right;
+        }
+    }
+
+    //Запись координат поддерева по порядку начиная с offset, возвращает следующую свободную позицию
+    private static int fill(TreeNode node, double[] target, int offset, boolean ordinates) {
+        while (node != null) {
+            offset = fill(node.left, target, offset, ordinates);
+            target[offset++] = ordinates ? node.y : node.x;
+            node = node.right;
+        }
+        return offset;
+    }
+
+    public void forEachPoint(int from, int to, PointConsumer consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null");
+        }
+        if (from < 0 || from > to || to > size(root)) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        visit(root, from, to, consumer);
+    }
+
+    public void copyXs(double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - size(root)) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        fill(root, target, offset, false);
+    }
+
+    public void copyYs(double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - size(root)) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        fill(root, target, offset, true);
+    }
+
+    //Новые версии функции
+
+    public ImmutableTabulatedFunction withPoint(int index, FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= root.size || point == null) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        checkPointX(index, point.getX());
+        return new ImmutableTabulatedFunction(replace(root, index, point.getX(), point.getY()));
+    }
+
+    public ImmutableTabulatedFunction withPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        TreeNode node = getNodeByIndex(index);
+        checkPointX(index, x);
+        return new ImmutableTabulatedFunction(replace(root, index, x, node.y));
+    }
+
+    public ImmutableTabulatedFunction withPointY(int index, double y) {
+        TreeNode node = getNodeByIndex(index);
+        return new ImmutableTabulatedFunction(replace(root, index, node.x, y));
+    }
+
+    public ImmutableTabulatedFunction withoutPoint(int index) {
+        if (index < 0 || index >= root.size) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        if (root.size < 3) {
+            throw new IllegalStateException();
+        }
+        return new ImmutableTabulatedFunction(removeByIndex(root, index));
+    }
+
+    public ImmutableTabulatedFunction withAddedPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (point == null) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        //Совпасть с новой точкой может только первый узел, не лежащий левее x - EPSILON
+        TreeNode node = root, nearest = null;
+        while (node != null) {
+            if (node.x + EPSILON >= point.getX()) {
+                nearest = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        if (nearest != null && Math.abs(nearest.x - point.getX()) <= EPSILON) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        return new ImmutableTabulatedFunction(insert(root, point.getX(), point.getY()));
+    }
+
+    //Проверка попадания в интервал между соседними точками
+    private void checkPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        if ((index > 0 && x - EPSILON <= getNodeByIndex(index - 1).x) ||
+                (index < root.size - 1 && x + EPSILON >= getNodeByIndex(index + 1).x)) {
+            throw new InappropriateFunctionPointException();
+        }
+    }
+
+    //Изменение на месте невозможно
+
+    public void setPoint(int index, FunctionPoint point) {
+        throw new UnsupportedOperationException("Immutable function: use withPoint");
+    }
+
+    public void setPointX(int index, double x) {
+        throw new UnsupportedOperationException("Immutable function: use withPointX");
+    }
+
+    public void setPointY(int index, double y) {
+        throw new UnsupportedOperationException("Immutable function: use withPointY");
+    }
+
+    public void deletePoint(int index) {
+        throw new UnsupportedOperationException("Immutable function: use withoutPoint");
+    }
+
+    public void addPoint(FunctionPoint point) {
+        throw new UnsupportedOperationException("Immutable function: use withAddedPoint");
+    }
+}
@@ -0,0 +1,364 @@
+package functions;
+
+//Обертка над любой табулированной функцией, собирающая метрики ее использования (см. TabulatedFunctionMetrics)
+public class InstrumentedTabulatedFunction implements TabulatedFunction, EditBatch.Replaceable, SegmentSearch.Measured {
+    //Номера методов в TabulatedFunctionMetrics.METHODS
+    private static final int GET_LEFT_DOMAIN_BORDER = 0;
+    private static final int GET_RIGHT_DOMAIN_BORDER = 1;
+    private static final int GET_FUNCTION_VALUE = 2;
+    private static final int GET_FUNCTION_VALUES = 3;
+    private static final int GET_POINTS_COUNT = 4;
+    private static final int GET_POINT = 5;
+    private static final int SET_POINT = 6;
+    private static final int GET_POINT_X = 7;
+    private static final int SET_POINT_X = 8;
+    private static final int GET_POINT_Y = 9;
+    private static final int SET_POINT_Y = 10;
+    private static final int DELETE_POINT = 11;
+    private static final int ADD_POINT = 12;
+    private static final int INTEGRAL = 13;
+    private static final int GET_MIN_VALUE = 14;
+    private static final int GET_MAX_VALUE = 15;
+    private static final int GET_ARGUMENT = 16;
+    private static final int FOR_EACH_POINT = 17; //Обе перегрузки
+    private static final int COPY_XS = 18;
+    private static final int COPY_YS = 19;
+
+    private static final int SEARCH_SAMPLE_PERIOD = 64; //Шаги поиска отрезка подсчитываются для каждого 64-го вычисления
+
+    private final double EPSILON = 1e-9;
+    private final TabulatedFunction function;
+    private final TabulatedFunctionMetrics metrics;
+
+    public InstrumentedTabulatedFunction(TabulatedFunction function) {
+        this(function, new TabulatedFunctionMetrics());
+    }
+
+    //Несколько функций могут вести общие метрики
+    public InstrumentedTabulatedFunction(TabulatedFunction function, TabulatedFunctionMetrics metrics) {
+        if (function == null || metrics == null) {
+            throw new IllegalArgumentException("Function and metrics must not be null");
+        }
+        this.function = function;
+        this.metrics = metrics;
+    }
+
+    public TabulatedFunctionMetrics getMetrics() {
+        return metrics;
+    }
+
+    //Шаги поиска отрезка сообщает обернутая таблица, если умеет, иначе -1
+    public int segmentSearchSteps(double x) {
+        if (function instanceof SegmentSearch.Measured)
+            return ((SegmentSearch.Measured) function).segmentSearchSteps(x);
+        return -1;
+    }
+
+    private boolean outOfDomain(double x) {
+        return !((x + EPSILON >= function.getLeftDomainBorder()) && (x - EPSILON <= function.getRightDomainBorder()));
+    }
+
+    public double getLeftDomainBorder() {
+        long start = System.nanoTime();
+        try {
+            return function.getLeftDomainBorder();
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(GET_LEFT_DOMAIN_BORDER, System.nanoTime() - start);
+        }
+    }
+
+    public double getRightDomainBorder() {
+        long start = System.nanoTime();
+        try {
+            return function.getRightDomainBorder();
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(GET_RIGHT_DOMAIN_BORDER, System.nanoTime() - start);
+        }
+    }
+
+    public double getFunctionValue(double x) {
+        //Шаги считаются до вызова: он может сдвинуть запомненную позицию (курсор списка) к найденному отрезку
+        if ((metrics.stripeCallCount(GET_FUNCTION_VALUE) & (SEARCH_SAMPLE_PERIOD - 1)) == 0) {
+            int steps = segmentSearchSteps(x);
+            if (steps >= 0)
+                metrics.recordSearchSteps(steps);
+        }
+
+        long start = System.nanoTime();
+        double value;
+        try {
+            value = function.getFunctionValue(x);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            metrics.recordCall(GET_FUNCTION_VALUE, System.nanoTime() - start);
+            throw error;
+        }
+        metrics.recordCall(GET_FUNCTION_VALUE, System.nanoTime() - start);
+
+        if (Double.isNaN(value) && outOfDomain(x)) //Границы проверяются только для NaN, чтобы не замедлять обычные вызовы
+            metrics.recordOutOfDomain(1);
+        return value;
+    }
+
+    public void getFunctionValues(double[] xs, int from, int to, double[] out) {
+        long start = System.nanoTime();
+        try {
+            function.getFunctionValues(xs, from, to, out);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            metrics.recordCall(GET_FUNCTION_VALUES, System.nanoTime() - start);
+            throw error;
+        }
+        metrics.recordCall(GET_FUNCTION_VALUES, System.nanoTime() - start);
+
+        long outside = 0;
+        for (int k = from; k < to; k++) {
+            if (Double.isNaN(out[k]) && outOfDomain(xs[k]))
+                outside++;
+        }
+        if (outside > 0)
+            metrics.recordOutOfDomain(outside);
+    }
+
+    public int getPointsCount() {
+        long start = System.nanoTime();
+        try {
+            return function.getPointsCount();
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(GET_POINTS_COUNT, System.nanoTime() - start);
+        }
+    }
+
+    //Служебный метод, в метриках не учитывается
+    public long getModificationCount() {
+        return function.getModificationCount();
+    }
+
+    public FunctionPoint getPoint(int index) {
+        long start = System.nanoTime();
+        try {
+            return function.getPoint(index);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(GET_POINT, System.nanoTime() - start);
+        }
+    }
+
+    public double integral(double a, double b) {
+        long start = System.nanoTime();
+        try {
+            return function.integral(a, b);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(INTEGRAL, System.nanoTime() - start);
+        }
+    }
+
+    public double getMinValue(double a, double b) {
+        long start = System.nanoTime();
+        try {
+            return function.getMinValue(a, b);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(GET_MIN_VALUE, System.nanoTime() - start);
+        }
+    }
+
+    public double getMaxValue(double a, double b) {
+        long start = System.nanoTime();
+        try {
+            return function.getMaxValue(a, b);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(GET_MAX_VALUE, System.nanoTime() - start);
+        }
+    }
+
+    public double getArgument(double y) {
+        long start = System.nanoTime();
+        try {
+            return function.getArgument(y);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(GET_ARGUMENT, System.nanoTime() - start);
+        }
+    }
+
+    //Задержка forEachPoint включает время работы consumer, его исключения учитываются как исключения вызова
+    public void forEachPoint(int from, int to, PointConsumer consumer) {
+        long start = System.nanoTime();
+        try {
+            function.forEachPoint(from, to, consumer);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(FOR_EACH_POINT, System.nanoTime() - start);
+        }
+    }
+
+    public void forEachPoint(PointConsumer consumer) {
+        long start = System.nanoTime();
+        try {
+            function.forEachPoint(consumer);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(FOR_EACH_POINT, System.nanoTime() - start);
+        }
+    }
+
+    public void copyXs(double[] target, int offset) {
+        long start = System.nanoTime();
+        try {
+            function.copyXs(target, offset);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(COPY_XS, System.nanoTime() - start);
+        }
+    }
+
+    public void copyYs(double[] target, int offset) {
+        long start = System.nanoTime();
+        try {
+            function.copyYs(target, offset);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(COPY_YS, System.nanoTime() - start);
+        }
+    }
+
+    //EditBatch передает набор обернутой таблице, если она заменяет точки за один проход, иначе применяет его
+    //отдельными вызовами этой обертки
+    public EditResult applyEdits(EditBatch.Replacement replacement) {
+        if (function instanceof EditBatch.Replaceable)
+            return ((EditBatch.Replaceable) function).applyEdits(replacement);
+        return EditBatch.Replaceable.super.applyEdits(replacement);
+    }
+
+    public EditResult replacePoints(EditBatch.Replacement replacement) {
+        if (function instanceof EditBatch.Replaceable)
+            return ((EditBatch.Replaceable) function).replacePoints(replacement);
+        return replacement.applyByCalls(this);
+    }
+
+    public void setPoint(int index, FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        long start = System.nanoTime();
+        try {
+            function.setPoint(index, point);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } catch (InappropriateFunctionPointException error) {
+            metrics.recordInappropriatePoint();
+            throw error;
+        } finally {
+            metrics.recordCall(SET_POINT, System.nanoTime() - start);
+        }
+    }
+
+    public double getPointX(int index) {
+        long start = System.nanoTime();
+        try {
+            return function.getPointX(index);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(GET_POINT_X, System.nanoTime() - start);
+        }
+    }
+
+    public void setPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        long start = System.nanoTime();
+        try {
+            function.setPointX(index, x);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } catch (InappropriateFunctionPointException error) {
+            metrics.recordInappropriatePoint();
+            throw error;
+        } finally {
+            metrics.recordCall(SET_POINT_X, System.nanoTime() - start);
+        }
+    }
+
+    public double getPointY(int index) {
+        long start = System.nanoTime();
+        try {
+            return function.getPointY(index);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(GET_POINT_Y, System.nanoTime() - start);
+        }
+    }
+
+    public void setPointY(int index, double y) {
+        long start = System.nanoTime();
+        try {
+            function.setPointY(index, y);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(SET_POINT_Y, System.nanoTime() - start);
+        }
+    }
+
+    public void deletePoint(int index) {
+        long start = System.nanoTime();
+        try {
+            function.deletePoint(index);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } finally {
+            metrics.recordCall(DELETE_POINT, System.nanoTime() - start);
+        }
+    }
+
+    public void addPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        long start = System.nanoTime();
+        try {
+            function.addPoint(point);
+        } catch (RuntimeException error) {
+            metrics.recordException(error);
+            throw error;
+        } catch (InappropriateFunctionPointException error) {
+            metrics.recordInappropriatePoint();
+            throw error;
+        } finally {
+            metrics.recordCall(ADD_POINT, System.nanoTime() - start);
+        }
+    }
+}
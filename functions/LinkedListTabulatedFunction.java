@@ -1,6 +1,6 @@
 package functions;
 
-public class LinkedListTabulatedFunction implements TabulatedFunction {
+public class LinkedListTabulatedFunction implements TabulatedFunction, EditBatch.Replaceable, SegmentSearch.Measured {
     private final double EPSILON = 1e-9;
     private static class FunctionNode {
         FunctionPoint point;
@@ -20,6 +20,9 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
     }
     private FunctionNode head = new FunctionNode();
     private int length;
+    private long modificationCount; //Число изменений таблицы, см. getModificationCount
+    private FunctionNode lastNode = head; //Узел, к которому было последнее обращение, и его номер (-1 - нет)
+    private int lastIndex = -1;
 
     public LinkedListTabulatedFunction(double leftX, double rightX, int pointsCount){
         if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
@@ -58,25 +61,51 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         }
     }
 
+    //Конструктор по набору упорядоченных по x точек
+    public LinkedListTabulatedFunction(FunctionPoint[] points) {
+        this(TabulatedFunctions.copyOrderedPoints(points), points.length);
+    }
+
+    //Строит список из первых length точек массива без копирования и проверок
+    LinkedListTabulatedFunction(FunctionPoint[] points, int length) {
+        for (int i = 0; i < length; i++) {
+            addNodeToTail(points[i]);
+        }
+    }
+
     private FunctionNode getNodeByIndex(int index) {
         if (index < 0 || index >= length) {
             throw new FunctionPointIndexOutOfBoundsException();
         }
 
         FunctionNode currentElement;
+        int currentIndex;
 
         if (index < length / 2) { //Выбираем сторону поиска для оптимизации
             currentElement = head.next;
-            for (int i = 0; i < index; i++) {
-                currentElement = currentElement.next;
-            }
+            currentIndex = 0;
         }
         else {
             currentElement = head.prev;
-            for (int i = length - 1; i > index; i--) {
-                currentElement = currentElement.prev;
-            }
+            currentIndex = length - 1;
+        }
+        //Если последний использованный узел ближе, идем от него
+        if (lastIndex >= 0 && Math.abs(index - lastIndex) < Math.abs(index - currentIndex)) {
+            currentElement = lastNode;
+            currentIndex = lastIndex;
+        }
+
+        while (currentIndex < index) {
+            currentElement = currentElement.next;
+            currentIndex++;
         }
+        while (currentIndex > index) {
+            currentElement = currentElement.prev;
+            currentIndex--;
+        }
+
+        lastNode = currentElement;
+        lastIndex = index;
         return currentElement;
     }
 
@@ -95,6 +124,10 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
     }
 
     private FunctionNode addNodeByIndex(int index, FunctionPoint point){
+        if (index == length) { //Вставка за последним элементом
+            return addNodeToTail(point);
+        }
+
         FunctionNode targetPosition = getNodeByIndex(index);
         FunctionNode newPoint = new FunctionNode(point);
         length++;
@@ -105,6 +138,9 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         targetPosition.prev.next = newPoint;
         targetPosition.prev = newPoint;
 
+        lastNode = newPoint; //Новый узел занял номер index, запомненный узел сдвинулся
+        lastIndex = index;
+
         return newPoint;
     }
 
@@ -115,6 +151,14 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         deletedPoint.prev.next = deletedPoint.next;
         deletedPoint.next.prev = deletedPoint.prev;
 
+        if (index > 0) { //Запоминаем предыдущий узел, его номер не изменился
+            lastNode = deletedPoint.prev;
+            lastIndex = index - 1;
+        } else {
+            lastNode = head;
+            lastIndex = -1;
+        }
+
         return deletedPoint;
     }
 
@@ -130,28 +174,105 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         return length;
     }
 
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
     public double getFunctionValue(double x){
         if ((x + EPSILON < getLeftDomainBorder()) || (x - EPSILON > getRightDomainBorder()))
             return Double.NaN; //x в пределах области функции
 
-        FunctionNode current = head.next;
+        FunctionNode current = head.next; //Ищем нужный отрезок, начиная с последнего использованного узла
+        int index = 0;
+        if (lastIndex >= 0) {
+            current = lastNode;
+            index = lastIndex;
+        }
+        if (index == length - 1) {
+            current = current.prev;
+            index--;
+        }
 
-        while (current != head.prev){
-            FunctionPoint p1 = current.point;
-            FunctionPoint p2 = current.next.point;
+        while (index > 0 && current.point.getX() + EPSILON >= x) {
+            current = current.prev;
+            index--;
+        }
+        while (index < length - 2 && current.next.point.getX() + EPSILON < x) {
+            current = current.next;
+            index++;
+        }
 
-            if (p2.getX() + EPSILON >= x) {
-                if (Math.abs(x - p1.getX()) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по ней y
-                    return p1.getY();
+        lastNode = current;
+        lastIndex = index;
+        return valueInSegment(current, x);
+    }
 
-                if (Math.abs(x - p2.getX()) <= EPSILON)
-                    return p2.getY();
+    public void getFunctionValues(double[] xs, int from, int to, double[] out) {
+        if (xs == null || out == null || from < 0 || from > to || to > xs.length || to > out.length)
+            throw new IllegalArgumentException("Invalid arguments range");
 
-                return p1.getY() + (x - p1.getX()) * (p2.getY() - p1.getY()) / (p2.getX() - p1.getX()); //Считаем значение по формуле
+        for (int k = from + 1; k < to; k++) {
+            if (!(xs[k-1] <= xs[k])) { //Неупорядоченные аргументы (или NaN) - поиск отрезка для каждого отдельно
+                for (int j = from; j < to; j++)
+                    out[j] = getFunctionValue(xs[j]);
+                return;
             }
+        }
+
+        double left = getLeftDomainBorder(), right = getRightDomainBorder();
+        FunctionNode current = head.next;
+        for (int k = from; k < to; k++) { //Для возрастающих аргументов список проходится один раз
+            double x = xs[k];
+            if ((x + EPSILON < left) || (x - EPSILON > right)) {
+                out[k] = Double.NaN;
+                continue;
+            }
+            while (current.next != head.prev && current.next.point.getX() + EPSILON < x)
+                current = current.next;
+            out[k] = valueInSegment(current, x);
+        }
+    }
+
+    //Значение в x, лежащем на отрезке между узлом node и следующим за ним
+    private double valueInSegment(FunctionNode node, double x) {
+        FunctionPoint p1 = node.point;
+        FunctionPoint p2 = node.next.point;
+
+        if (Math.abs(x - p1.getX()) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по ней y
+            return p1.getY();
+
+        if (Math.abs(x - p2.getX()) <= EPSILON)
+            return p2.getY();
+
+        return p1.getY() + (x - p1.getX()) * (p2.getY() - p1.getY()) / (p2.getX() - p1.getX()); //Считаем значение по формуле
+    }
+
+    //Число узлов, которые пройдет поиск отрезка для x от запомненного узла, без изменения состояния (для метрик)
+    public int segmentSearchSteps(double x) {
+        if (!((x + EPSILON >= getLeftDomainBorder()) && (x - EPSILON <= getRightDomainBorder())))
+            return 0;
+
+        FunctionNode current = head.next;
+        int index = 0, steps = 0;
+        if (lastIndex >= 0) {
+            current = lastNode;
+            index = lastIndex;
+        }
+        if (index == length - 1) {
+            current = current.prev;
+            index--;
+        }
+        while (index > 0 && current.point.getX() + EPSILON >= x) {
+            current = current.prev;
+            index--;
+            steps++;
+        }
+        while (index < length - 2 && current.next.point.getX() + EPSILON < x) {
             current = current.next;
+            index++;
+            steps++;
         }
-        return Double.NaN;
+        return steps;
     }
 
     public FunctionPoint getPoint(int index){
@@ -175,21 +296,61 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         return this.getNodeByIndex(index).point.getY();
     }
 
+    //Один проход по списку вместо поиска узла для каждого номера
+    public void forEachPoint(int from, int to, PointConsumer consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null");
+        }
+        if (from < 0 || from > to || to > length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        if (from == to)
+            return;
+        FunctionNode current = getNodeByIndex(from);
+        for (int i = from; i < to; i++) {
+            consumer.accept(current.point.getX(), current.point.getY());
+            current = current.next;
+        }
+    }
+
+    public void copyXs(double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - length) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        FunctionNode current = head.next;
+        for (int i = 0; i < length; i++) {
+            target[offset + i] = current.point.getX();
+            current = current.next;
+        }
+    }
+
+    public void copyYs(double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - length) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        FunctionNode current = head.next;
+        for (int i = 0; i < length; i++) {
+            target[offset + i] = current.point.getY();
+            current = current.next;
+        }
+    }
+
     public void setPoint(int index, FunctionPoint point)
             throws InappropriateFunctionPointException {
         if (index < 0 || index >= length || point == null) {
             throw new FunctionPointIndexOutOfBoundsException();
         }
 
-        // Проверка по предыдущему узлу
-        if (index > 0) {
-            FunctionNode prevNode = getNodeByIndex(index - 1);
-            if (point.getX() - EPSILON <= prevNode.point.getX()) {
-                throw new InappropriateFunctionPointException();
-            }
+        FunctionNode node = getNodeByIndex(index);
+
+        // Проверка по соседним узлам
+        if ((index > 0 && point.getX() - EPSILON <= node.prev.point.getX()) ||
+                (index < length - 1 && point.getX() + EPSILON >= node.next.point.getX())) {
+            throw new InappropriateFunctionPointException();
         }
 
-        getNodeByIndex(index).point = new FunctionPoint(point);
+        node.point = new FunctionPoint(point);
+        modificationCount++;
     }
 
     public void setPointX(int index, double x)
@@ -198,13 +359,16 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
             throw new FunctionPointIndexOutOfBoundsException();
         }
 
+        FunctionNode node = getNodeByIndex(index);
+
         //Проверка попадания в интервалы
-        if ((index > 0 && x <= getNodeByIndex(index - 1).point.getX()) ||
-                (index < length - 1 && x >= getNodeByIndex(index + 1).point.getX())) {
+        if ((index > 0 && x - EPSILON <= node.prev.point.getX()) ||
+                (index < length - 1 && x + EPSILON >= node.next.point.getX())) {
             throw new InappropriateFunctionPointException();
         }
 
-        getNodeByIndex(index).point.setX(x);
+        node.point.setX(x);
+        modificationCount++;
     }
 
     public void setPointY(int index, double y) {
@@ -212,6 +376,7 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
             throw new FunctionPointIndexOutOfBoundsException();
         }
         getNodeByIndex(index).point.setY(y);
+        modificationCount++;
     }
 
     public void deletePoint(int index) {
@@ -222,6 +387,7 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
             throw new IllegalStateException();
         }
         deleteNodeByIndex(index);
+        modificationCount++;
     }
 
     public void addPoint(FunctionPoint point)
@@ -247,5 +413,31 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         }
 
         addNodeByIndex(newIndex, point);
+        modificationCount++;
+    }
+
+    //Добавление точки правее всех имеющихся (например, очередного отсчета по времени) за O(1):
+    //проверяется только правая граница, список не просматривается
+    public void appendPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (point == null || !(point.getX() - EPSILON > head.prev.point.getX())) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        addNodeToTail(new FunctionPoint(point));
+        modificationCount++;
+    }
+
+    //Замена всех точек набором EditBatch без проверок; узлы списка создаются заново по его массивам
+    public EditResult replacePoints(EditBatch.Replacement replacement) {
+        head.next = head;
+        head.prev = head;
+        this.length = 0;
+        lastNode = head;
+        lastIndex = -1;
+        for (int i = 0; i < replacement.length; i++)
+            addNodeToTail(new FunctionPoint(replacement.xs[i], replacement.ys[i]));
+        modificationCount++;
+        return EditResult.SUCCESS;
     }
 }
@@ -0,0 +1,254 @@
+package functions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Табулированная функция, точки которой хранятся в файле, отображенном в память, а не в куче.
+//Формат файла описан в BinaryFormat, такие файлы записывает TabulatedFunctionWriter.
+//Несколько процессов могут отобразить один файл одновременно, страницы при этом общие.
+//При открытии проверяются только заголовок и размер файла: в отличие от TabulatedFunctionReader, порядок
+//хранимых x неравномерной сетки не проверяется (это потребовало бы прочитать весь файл), и для файла
+//с неупорядоченными x результаты поиска отрезка не определены.
+public class MappedTabulatedFunction implements TabulatedFunction, SegmentSearch.Measured {
+    private static final int REGION_SHIFT = 30; //Файл отображается частями по 1 Гб (одна часть не больше 2 Гб)
+    private static final long REGION_SIZE = 1L << REGION_SHIFT;
+
+    private final double EPSILON = 1e-9;
+    private final MappedByteBuffer[] regions;
+    private final boolean writable;
+    private final int length;
+    private final boolean uniform;
+    private final double left;
+    private final double step;
+    private final long xsOffset; //Смещения массивов x и y в файле
+    private final long ysOffset;
+    private long modificationCount; //Число изменений таблицы, см. getModificationCount
+    private final SegmentSearch.Abscissas abscissas = new SegmentSearch.Abscissas() { //Абсциссы для поиска отрезка
+        public double x(int index) {
+            return MappedTabulatedFunction.this.x(index);
+        }
+    };
+
+    private MappedTabulatedFunction(MappedByteBuffer[] regions, boolean writable, int length,
+                                    boolean uniform, double left, double step) {
+        this.regions = regions;
+        this.writable = writable;
+        this.length = length;
+        this.uniform = uniform;
+        this.left = left;
+        this.step = step;
+        this.xsOffset = BinaryFormat.HEADER_SIZE;
+        this.ysOffset = uniform ? BinaryFormat.HEADER_SIZE : BinaryFormat.HEADER_SIZE + 8L * length;
+    }
+
+    //Отображение файла только для чтения
+    public static MappedTabulatedFunction open(Path file) throws IOException {
+        return open(file, false);
+    }
+
+    //Отображение файла; при writable изменения ординат и абсцисс записываются прямо в файл
+    public static MappedTabulatedFunction open(Path file, boolean writable) throws IOException {
+        FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < BinaryFormat.HEADER_SIZE) {
+                throw new IOException("File is too short for tabulated function header");
+            }
+
+            FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+            MappedByteBuffer[] regions = new MappedByteBuffer[(int) ((fileSize + REGION_SIZE - 1) >>> REGION_SHIFT)];
+            for (int i = 0; i < regions.length; i++) {
+                long position = (long) i << REGION_SHIFT;
+                regions[i] = channel.map(mode, position, Math.min(REGION_SIZE, fileSize - position));
+                regions[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            ByteBuffer header = regions[0];
+            if (header.getInt(0) != BinaryFormat.MAGIC) {
+                throw new IOException("Not a tabulated function file");
+            }
+            if (header.getInt(4) != BinaryFormat.VERSION) {
+                throw new IOException("Unsupported tabulated function file version " + header.getInt(4));
+            }
+            boolean uniform = (header.getInt(8) & BinaryFormat.FLAG_UNIFORM) != 0;
+            long count = header.getLong(16);
+            if (count < 2 || count > Integer.MAX_VALUE) {
+                throw new IOException("Invalid points count " + count);
+            }
+            if (fileSize != BinaryFormat.HEADER_SIZE + 8 * count * (uniform ? 1 : 2)) {
+                throw new IOException("File size does not match points count");
+            }
+            double left = header.getDouble(24), step = header.getDouble(32);
+            if (Double.isNaN(left) || Double.isInfinite(left)) {
+                throw new IOException("Invalid left border " + left);
+            }
+            if (!(step > 0) || Double.isInfinite(step)) { //Заодно отсекается NaN
+                throw new IOException("Invalid grid step " + step);
+            }
+            //Отображение остается действительным и после закрытия канала
+            return new MappedTabulatedFunction(regions, writable, (int) count, uniform, left, step);
+        } finally {
+            channel.close();
+        }
+    }
+
+    //Запись функции в файл в формате, который может быть отображен методом open
+    public static void write(TabulatedFunction function, Path file) throws IOException {
+        TabulatedFunctionWriter writer = new TabulatedFunctionWriter(FileChannel.open(file,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
+        try {
+            writer.write(function);
+        } finally {
+            writer.close();
+        }
+    }
+
+    //Сбрасывает изменения отображенных страниц на диск
+    public void force() {
+        if (writable) {
+            for (MappedByteBuffer region : regions)
+                region.force();
+        }
+    }
+
+    //Числа выровнены по 8 байт, поэтому ни одно не пересекает границу частей
+    private double readDouble(long offset) {
+        return regions[(int) (offset >>> REGION_SHIFT)].getDouble((int) (offset & (REGION_SIZE - 1)));
+    }
+
+    private void writeDouble(long offset, double value) {
+        regions[(int) (offset >>> REGION_SHIFT)].putDouble((int) (offset & (REGION_SIZE - 1)), value);
+        modificationCount++;
+    }
+
+    private double x(int index) {
+        return uniform ? left + index * step : readDouble(xsOffset + 8L * index);
+    }
+
+    private double y(int index) {
+        return readDouble(ysOffset + 8L * index);
+    }
+
+    public double getLeftDomainBorder() {
+        return x(0);
+    }
+
+    public double getRightDomainBorder() {
+        return x(length - 1);
+    }
+
+    public int getPointsCount() {
+        return length;
+    }
+
+    //Учитываются только изменения через этот объект, а не через другие отображения того же файла
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    public double getFunctionValue(double x) {
+        if ((x + EPSILON < x(0)) || (x - EPSILON > x(length - 1)))
+            return Double.NaN; //x в пределах области функции
+
+        int i = locateSegment(x); //Ищем нужный отрезок между точками
+        double x1 = x(i), x2 = x(i + 1);
+
+        if (Math.abs(x - x1) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по нему y
+            return y(i);
+
+        if (Math.abs(x - x2) <= EPSILON)
+            return y(i + 1);
+
+        double y1 = y(i);
+        return y1 + (x - x1) * (y(i + 1) - y1) / (x2 - x1); //Считаем значение по формуле
+    }
+
+    //Номер отрезка [x(i); x(i+1)] для x из области определения: наименьшее i, при котором x(i+1) + EPSILON >= x
+    private int locateSegment(double x) {
+        return SegmentSearch.locate(abscissas, length, uniform ? step : 0, x);
+    }
+
+    //Число шагов поиска отрезка для x (для метрик); 0 вне области определения
+    public int segmentSearchSteps(double x) {
+        if (!((x + EPSILON >= getLeftDomainBorder()) && (x - EPSILON <= getRightDomainBorder())))
+            return 0;
+
+        return SegmentSearch.steps(abscissas, length, uniform ? step : 0, x);
+    }
+
+    public FunctionPoint getPoint(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return new FunctionPoint(x(index), y(index));
+    }
+
+    public double getPointX(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return x(index);
+    }
+
+    public double getPointY(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return y(index);
+    }
+
+    public void setPoint(int index, FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= length || point == null) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        setPointX(index, point.getX());
+        setPointY(index, point.getY());
+    }
+
+    public void setPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        if (x == x(index))
+            return;
+        if (!writable || uniform) {
+            throw new UnsupportedOperationException("Abscissas of this mapped function cannot be changed");
+        }
+
+        //Проверка попадания в интервалы
+        if ((index > 0 && x - EPSILON <= x(index - 1)) ||
+                (index < length - 1 && x + EPSILON >= x(index + 1))) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        writeDouble(xsOffset + 8L * index, x);
+    }
+
+    public void setPointY(int index, double y) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        if (!writable) {
+            throw new UnsupportedOperationException("Mapped function is opened read-only");
+        }
+        writeDouble(ysOffset + 8L * index, y);
+    }
+
+    public void deletePoint(int index) {
+        throw new UnsupportedOperationException("Mapped function has a fixed number of points");
+    }
+
+    public void addPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        throw new UnsupportedOperationException("Mapped function has a fixed number of points");
+    }
+}
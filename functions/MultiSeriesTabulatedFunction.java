@@ -0,0 +1,420 @@
+package functions;
+
+//Набор табулированных функций (каналов) с общими абсциссами: один столбец x и columnCount столбцов y.
+//Ординаты хранятся по строкам (values[i * columnCount + c]), поэтому evaluateAll находит отрезок один раз
+//и читает две соседние строки подряд. Каждый столбец доступен как TabulatedFunction через column(c).
+//Абсциссы общие: setPointX, addPoint и deletePoint через любое представление меняют все столбцы
+public class MultiSeriesTabulatedFunction {
+    private final double EPSILON = 1e-9;
+    private final int columnCount;
+
+    private double[] xs;
+    private double[] values; //Строка i - ординаты всех столбцов в точке xs[i]
+    private int length;
+    private long modificationCount; //Число изменений таблицы, общее для всех представлений
+    private boolean uniform; //Точки расположены с равным шагом (как после конструкторов)
+    private double step;
+
+    private final SegmentSearch.Abscissas abscissas = new SegmentSearch.Abscissas() { //Абсциссы для поиска отрезка
+        public double x(int index) {
+            return xs[index];
+        }
+    };
+    //Точки сетки с нулевыми ординатами во всех столбцах
+    public MultiSeriesTabulatedFunction(double leftX, double rightX, int pointsCount, int columnCount) {
+        if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
+            throw new IllegalArgumentException("Right border must be greater than left border");
+        }
+
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        if (columnCount < 1) {
+            throw new IllegalArgumentException("There must be at least 1 column");
+        }
+
+        this.columnCount = columnCount;
+        this.length = pointsCount;
+        this.xs = new double[pointsCount];
+        this.values = new double[pointsCount * columnCount];
+        fillGrid(leftX, rightX);
+    }
+
+    //Столбцы columns[c] - ординаты c-го канала в точках равномерной сетки
+    public MultiSeriesTabulatedFunction(double leftX, double rightX, double[][] columns) {
+        if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
+            throw new IllegalArgumentException("Right border must be greater than left border");
+        }
+
+        if (columns == null || columns.length < 1) {
+            throw new IllegalArgumentException("There must be at least 1 column");
+        }
+
+        if (columns[0] == null || columns[0].length < 2) {
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        this.columnCount = columns.length;
+        this.length = columns[0].length;
+        this.xs = new double[length];
+        this.values = new double[length * columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            if (columns[c] == null || columns[c].length != length) {
+                throw new IllegalArgumentException("Columns must be of equal length");
+            }
+            for (int i = 0; i < length; i++)
+                values[i * columnCount + c] = columns[c][i];
+        }
+        fillGrid(leftX, rightX);
+    }
+
+    //Объединение функций с одинаковыми абсциссами (например, каналов, снятых в одни и те же моменты)
+    public MultiSeriesTabulatedFunction(TabulatedFunction[] functions) {
+        if (functions == null || functions.length < 1 || functions[0] == null) {
+            throw new IllegalArgumentException("There must be at least 1 column");
+        }
+
+        this.columnCount = functions.length;
+        this.length = functions[0].getPointsCount();
+        this.xs = new double[length];
+        this.values = new double[length * columnCount];
+        functions[0].copyXs(xs, 0);
+
+        double[] column = new double[length];
+        double[] columnXs = new double[length];
+        for (int c = 0; c < columnCount; c++) {
+            if (functions[c] == null || functions[c].getPointsCount() != length) {
+                throw new IllegalArgumentException("Functions must share the same x grid");
+            }
+            functions[c].copyXs(columnXs, 0);
+            functions[c].copyYs(column, 0);
+            for (int i = 0; i < length; i++) {
+                if (columnXs[i] != xs[i]) {
+                    throw new IllegalArgumentException("Functions must share the same x grid");
+                }
+                values[i * columnCount + c] = column[i];
+            }
+        }
+    }
+
+    private void fillGrid(double leftX, double rightX) {
+        double delta = (rightX - leftX) / (length - 1); //Создание точек через равные по х промежутки
+        for (int i = 0; i < length; i++)
+            xs[i] = leftX + i * delta;
+        this.uniform = true;
+        this.step = delta;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public int getPointsCount() {
+        return length;
+    }
+
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    public double getLeftDomainBorder() {
+        return xs[0];
+    }
+
+    public double getRightDomainBorder() {
+        return xs[length-1];
+    }
+
+    //Представление столбца c; изменения через него видны в таблице и во всех других представлениях
+    public TabulatedFunction column(int c) {
+        if (c < 0 || c >= columnCount) {
+            throw new IllegalArgumentException("Column index is out of bounds");
+        }
+        return new Column(c);
+    }
+
+    //Значения всех столбцов в x (out[c]), отрезок ищется один раз; вне области определения - NaN
+    public void evaluateAll(double x, double[] out) {
+        if (out == null || out.length < columnCount) {
+            throw new IllegalArgumentException("Output array must be at least as long as column count");
+        }
+
+        if (!((x + EPSILON >= xs[0]) && (x - EPSILON <= xs[length-1]))) { //x в пределах области функции
+            for (int c = 0; c < columnCount; c++)
+                out[c] = Double.NaN;
+            return;
+        }
+
+        int i = locateSegment(x);
+        double x1 = xs[i], x2 = xs[i+1];
+        int row1 = i * columnCount, row2 = row1 + columnCount;
+        if (Math.abs(x - x1) <= EPSILON) { //Если x совпадает с одной из точек-границ отрезка возвращаем по ней y
+            System.arraycopy(values, row1, out, 0, columnCount);
+            return;
+        }
+        if (Math.abs(x - x2) <= EPSILON) {
+            System.arraycopy(values, row2, out, 0, columnCount);
+            return;
+        }
+
+        for (int c = 0; c < columnCount; c++)
+            out[c] = values[row1 + c] + (x - x1) * (values[row2 + c] - values[row1 + c]) / (x2 - x1);
+    }
+
+    //Отрезок [x(i); x(i+1)]: наименьшее i, при котором x(i+1) + EPSILON >= x
+    private int locateSegment(double x) {
+        return SegmentSearch.locate(abscissas, length, uniform ? step : 0, x);
+    }
+
+    //Число шагов поиска отрезка для x (для метрик столбцов); 0 вне области определения
+    private int segmentSearchSteps(double x) {
+        if (!((x + EPSILON >= xs[0]) && (x - EPSILON <= xs[length-1])))
+            return 0;
+
+        return SegmentSearch.steps(abscissas, length, uniform ? step : 0, x);
+    }
+
+    //Значение столбца c в x, лежащем в области определения
+    private double valueAt(int c, double x) {
+        int i = locateSegment(x);
+        double x1 = xs[i], x2 = xs[i+1];
+        double y1 = values[i * columnCount + c], y2 = values[(i + 1) * columnCount + c];
+
+        if (Math.abs(x - x1) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по ней y
+            return y1;
+
+        if (Math.abs(x - x2) <= EPSILON)
+            return y2;
+
+        return y1 + (x - x1) * (y2 - y1) / (x2 - x1); //Считаем значение по формуле
+    }
+
+    public double getPointX(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return xs[index];
+    }
+
+    public double getPointY(int column, int index) {
+        if (column < 0 || column >= columnCount) {
+            throw new IllegalArgumentException("Column index is out of bounds");
+        }
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return values[index * columnCount + column];
+    }
+
+    public void setPointY(int column, int index, double y) {
+        if (column < 0 || column >= columnCount) {
+            throw new IllegalArgumentException("Column index is out of bounds");
+        }
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        values[index * columnCount + column] = y;
+        modificationCount++;
+    }
+
+    //Изменение абсциссы точки сразу во всех столбцах
+    public void setPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+
+        //Проверка попадания в интервалы
+        if ((index > 0 && x - EPSILON <= xs[index-1]) ||
+                (index < length - 1 && x + EPSILON >= xs[index+1])) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        if (x != xs[index])
+            uniform = false; //Сетка перестает быть равномерной
+        xs[index] = x;
+        modificationCount++;
+    }
+
+    public void deletePoint(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        if (length < 3) {
+            throw new IllegalStateException();
+        }
+
+        System.arraycopy(xs, index + 1, xs, index, length - index - 1); //Сдвигаем строки влево
+        System.arraycopy(values, (index + 1) * columnCount, values, index * columnCount, (length - index - 1) * columnCount);
+        length--;
+        uniform = false;
+        modificationCount++;
+    }
+
+    //Добавление строки: row[c] - ордината c-го столбца в x
+    public void addPoint(double x, double[] row)
+            throws InappropriateFunctionPointException {
+        if (row == null || row.length < columnCount) {
+            throw new IllegalArgumentException("Row must contain a value for every column");
+        }
+        int index = insertionIndex(x);
+        insertRow(index, x);
+        System.arraycopy(row, 0, values, index * columnCount, columnCount);
+        modificationCount++;
+    }
+
+    //Место для новой точки по х: первый индекс, где x(i) + EPSILON >= x; совпадение с точкой или NaN - исключение
+    private int insertionIndex(double x)
+            throws InappropriateFunctionPointException {
+        if (Double.isNaN(x)) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        int low = 0, high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid] + EPSILON >= x)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        if (low < length && Math.abs(x - xs[low]) <= EPSILON) { //Если совпадает с другой точкой
+            throw new InappropriateFunctionPointException();
+        }
+        return low;
+    }
+
+    //Освобождает строку index, сдвигая следующие вправо; ординаты новой строки заполняет вызывающий
+    private void insertRow(int index, double x) {
+        if (length == xs.length) {
+            int capacity = length + (length >> 1) + 1;
+            double[] newXs = new double[capacity];
+            double[] newValues = new double[capacity * columnCount];
+            System.arraycopy(xs, 0, newXs, 0, length);
+            System.arraycopy(values, 0, newValues, 0, length * columnCount);
+            xs = newXs;
+            values = newValues;
+        }
+        System.arraycopy(xs, index, xs, index + 1, length - index);
+        System.arraycopy(values, index * columnCount, values, (index + 1) * columnCount, (length - index) * columnCount);
+        xs[index] = x;
+        length++;
+        uniform = false;
+    }
+
+    //Столбец таблицы как табулированная функция
+    private final class Column implements TabulatedFunction, SegmentSearch.Measured {
+        private final int column;
+
+        Column(int column) {
+            this.column = column;
+        }
+
+        public double getLeftDomainBorder() {
+            return xs[0];
+        }
+
+        public double getRightDomainBorder() {
+            return xs[length-1];
+        }
+
+        public double getFunctionValue(double x) {
+            if (!((x + EPSILON >= xs[0]) && (x - EPSILON <= xs[length-1])))
+                return Double.NaN; //x в пределах области функции
+            return valueAt(column, x);
+        }
+
+        public int segmentSearchSteps(double x) {
+            return MultiSeriesTabulatedFunction.this.segmentSearchSteps(x);
+        }
+
+        public int getPointsCount() {
+            return length;
+        }
+
+        public long getModificationCount() {
+            return modificationCount;
+        }
+
+        public FunctionPoint getPoint(int index) {
+            return new FunctionPoint(MultiSeriesTabulatedFunction.this.getPointX(index), getPointY(index));
+        }
+
+        public void forEachPoint(int from, int to, PointConsumer consumer) {
+            if (consumer == null) {
+                throw new IllegalArgumentException("Consumer must not be null");
+            }
+            if (from < 0 || from > to || to > length) {
+                throw new FunctionPointIndexOutOfBoundsException();
+            }
+            for (int i = from; i < to; i++)
+                consumer.accept(xs[i], values[i * columnCount + column]);
+        }
+
+        public void copyXs(double[] target, int offset) {
+            if (target == null || offset < 0 || offset > target.length - length) {
+                throw new IllegalArgumentException("Target array is too small");
+            }
+            System.arraycopy(xs, 0, target, offset, length);
+        }
+
+        public void copyYs(double[] target, int offset) {
+            if (target == null || offset < 0 || offset > target.length - length) {
+                throw new IllegalArgumentException("Target array is too small");
+            }
+            for (int i = 0; i < length; i++)
+                target[offset + i] = values[i * columnCount + column];
+        }
+
+        public void setPoint(int index, FunctionPoint point)
+                throws InappropriateFunctionPointException {
+            if (index < 0 || index >= length || point == null) {
+                throw new FunctionPointIndexOutOfBoundsException();
+            }
+            MultiSeriesTabulatedFunction.this.setPointX(index, point.getX());
+            values[index * columnCount + column] = point.getY();
+        }
+
+        public double getPointX(int index) {
+            return MultiSeriesTabulatedFunction.this.getPointX(index);
+        }
+
+        public void setPointX(int index, double x)
+                throws InappropriateFunctionPointException {
+            MultiSeriesTabulatedFunction.this.setPointX(index, x);
+        }
+
+        public double getPointY(int index) {
+            return MultiSeriesTabulatedFunction.this.getPointY(column, index);
+        }
+
+        public void setPointY(int index, double y) {
+            MultiSeriesTabulatedFunction.this.setPointY(column, index, y);
+        }
+
+        public void deletePoint(int index) {
+            MultiSeriesTabulatedFunction.this.deletePoint(index);
+        }
+
+        //Остальные столбцы получают в новой точке свое прежнее значение (за границей области - крайнее),
+        //так что их функции внутри области не меняются
+        public void addPoint(FunctionPoint point)
+                throws InappropriateFunctionPointException {
+            if (point == null) {
+                throw new InappropriateFunctionPointException();
+            }
+
+            double x = point.getX();
+            int index = insertionIndex(x);
+            double[] row = new double[columnCount];
+            double inside = Math.min(Math.max(x, xs[0]), xs[length-1]);
+            for (int c = 0; c < columnCount; c++)
+                row[c] = valueAt(c, inside);
+            row[column] = point.getY();
+            insertRow(index, x);
+            System.arraycopy(row, 0, values, index * columnCount, columnCount);
+            modificationCount++;
+        }
+    }
+}
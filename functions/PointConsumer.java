@@ -0,0 +1,6 @@
+package functions;
+
+//Получатель координат точек при обходе табулированной функции
+public interface PointConsumer {
+    void accept(double x, double y);
+}
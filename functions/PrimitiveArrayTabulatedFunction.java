@@ -0,0 +1,385 @@
+package functions;
+
+public class PrimitiveArrayTabulatedFunction implements TabulatedFunction, EditBatch.Replaceable, SegmentSearch.Measured {
+    private double[] xs; //Абсциссы и ординаты хранятся в двух параллельных массивах без объектов FunctionPoint
+    private double[] ys;
+    private int length;
+    private long modificationCount; //Число изменений таблицы, см. getModificationCount
+    private final SegmentAreaIndex areaIndex = new SegmentAreaIndex(); //Площади под отрезками для integral
+    private final ValueRangeIndex valueIndex = new ValueRangeIndex(); //Наименьшие и наибольшие ординаты для getMinValue, getMaxValue, getArgument
+    private final double EPSILON = 1e-9; //Машинный эпсилон для сравнений
+    private boolean uniform; //Точки расположены с равным шагом (как после конструкторов)
+    private double step; //Шаг равномерной сетки
+    private final SegmentSearch.Abscissas abscissas = new SegmentSearch.Abscissas() { //Абсциссы для поиска отрезка
+        public double x(int index) {
+            return xs[index];
+        }
+    };
+
+    //Конструктор по количеству элементов
+    public PrimitiveArrayTabulatedFunction(double leftX, double rightX, int pointsCount) {
+        if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
+            throw new IllegalArgumentException("Right border must be greater than left border");
+        }
+
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        this.length = pointsCount;
+        this.xs = new double[pointsCount];
+        this.ys = new double[pointsCount];
+        fillGrid(leftX, rightX);
+    }
+
+    //Конструктор по значениям
+    public PrimitiveArrayTabulatedFunction(double leftX, double rightX, double[] values) {
+        if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
+            throw new IllegalArgumentException("Right border must be greater than left border");
+        }
+
+        if (values == null || values.length < 2) { // Защита от null и пустого массива
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        this.length = values.length;
+        this.xs = new double[length];
+        this.ys = new double[length];
+        fillGrid(leftX, rightX);
+        System.arraycopy(values, 0, ys, 0, length);
+    }
+
+    private void fillGrid(double leftX, double rightX) {
+        double delta = (rightX - leftX) / (length - 1); //Создание точек через равные по х промежутки
+        for (int i = 0; i < length; i++)
+            xs[i] = leftX + i * delta;
+        this.uniform = true;
+        this.step = delta;
+    }
+
+    //Геттеры
+    public double getLeftDomainBorder() {
+        return xs[0];
+    }
+
+    public double getRightDomainBorder() {
+        return xs[length-1];
+    }
+
+    public int getPointsCount() {
+        return length;
+    }
+
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    public double getFunctionValue(double x) {
+        if ((x + EPSILON < xs[0]) || (x - EPSILON > xs[length-1]))
+            return Double.NaN; //x в пределах области функции
+
+        return valueInSegment(locateSegment(x), x); //Ищем нужный отрезок между точками
+    }
+
+    public void getFunctionValues(double[] args, int from, int to, double[] out) {
+        if (args == null || out == null || from < 0 || from > to || to > args.length || to > out.length)
+            throw new IllegalArgumentException("Invalid arguments range");
+
+        boolean sorted = true; //Неупорядоченные аргументы (или NaN) - поиск отрезка для каждого отдельно
+        for (int k = from + 1; k < to && sorted; k++)
+            sorted = args[k-1] <= args[k];
+
+        double left = xs[0], right = xs[length-1];
+        int last = length - 2;
+        int i = -1;
+        for (int k = from; k < to; k++) { //Для возрастающих аргументов отрезки проходятся одним встречным проходом
+            double x = args[k];
+            if (!((x + EPSILON >= left) && (x - EPSILON <= right))) { //Вне области определения или NaN
+                out[k] = Double.NaN;
+                continue;
+            }
+            if (i < 0 || !sorted) {
+                i = locateSegment(x);
+            } else {
+                int steps = 0;
+                while (i < last && xs[i+1] + EPSILON < x) {
+                    if (++steps > 8) { //Аргументы разрежены относительно точек - дальше быстрее искать заново
+                        i = locateSegment(x);
+                        break;
+                    }
+                    i++;
+                }
+            }
+            out[k] = valueInSegment(i, x);
+        }
+    }
+
+    //Интеграл за O(log n) по префиксным суммам площадей отрезков
+    public double integral(double a, double b) {
+        double left = getLeftDomainBorder(), right = getRightDomainBorder();
+        if (!((a + EPSILON >= left) && (a - EPSILON <= right) && (b + EPSILON >= left) && (b - EPSILON <= right)))
+            return Double.NaN; //a и b в пределах области функции
+
+        if (!areaIndex.isBuilt()) {
+            areaIndex.reset(length - 1);
+            for (int i = 0; i < length - 1; i++)
+                areaIndex.put(i, SegmentAreaIndex.trapezoid(xs[i], ys[i], xs[i+1], ys[i+1]));
+            areaIndex.build();
+        }
+        return areaBefore(Math.min(Math.max(b, left), right)) - areaBefore(Math.min(Math.max(a, left), right));
+    }
+
+    //Площадь под ломаной от левой границы до x: целые отрезки по индексу и часть отрезка, содержащего x
+    private double areaBefore(double x) {
+        int i = locateSegment(x);
+        double x1 = xs[i], y1 = ys[i], x2 = xs[i+1], y2 = ys[i+1];
+        double y = y1 + (x - x1) * (y2 - y1) / (x2 - x1);
+        return areaIndex.prefix(i) + SegmentAreaIndex.trapezoid(x1, y1, x, y);
+    }
+
+    //Пересчет площадей двух отрезков, примыкающих к точке index
+    private void refreshAreas(int index) {
+        if (!areaIndex.isBuilt())
+            return;
+        if (index > 0)
+            areaIndex.set(index - 1, SegmentAreaIndex.trapezoid(xs[index-1], ys[index-1], xs[index], ys[index]));
+        if (index < length - 1)
+            areaIndex.set(index, SegmentAreaIndex.trapezoid(xs[index], ys[index], xs[index+1], ys[index+1]));
+    }
+
+    public double getMinValue(double a, double b) {
+        return extremum(a, b, false);
+    }
+
+    public double getMaxValue(double a, double b) {
+        return extremum(a, b, true);
+    }
+
+    //Значения на концах [a; b] и наименьшее (наибольшее) значение точек между ними по дереву отрезков
+    private double extremum(double a, double b, boolean maximum) {
+        double left = getLeftDomainBorder(), right = getRightDomainBorder();
+        if (!((a + EPSILON >= left) && (a - EPSILON <= right) && (b + EPSILON >= left) && (b - EPSILON <= right)))
+            return Double.NaN; //a и b в пределах области функции
+
+        double low = Math.min(Math.max(Math.min(a, b), left), right), high = Math.min(Math.max(Math.max(a, b), left), right);
+        double atLow = getFunctionValue(low), atHigh = getFunctionValue(high);
+        double result = maximum ? Math.max(atLow, atHigh) : Math.min(atLow, atHigh);
+        int from = locateSegment(low) + 1, to = locateSegment(high) + 1; //Точки строго между концами
+        if (from < to) {
+            buildValueIndex();
+            result = maximum ? Math.max(result, valueIndex.max(from, to)) : Math.min(result, valueIndex.min(from, to));
+        }
+        return result;
+    }
+
+    //Наименьший x со значением y: первая точка, достигающая y, находится спуском по дереву отрезков
+    public double getArgument(double y) {
+        double first = ys[0];
+        if (y == first)
+            return xs[0];
+        if (!(first < y || first > y)) //y или первое значение - NaN
+            return Double.NaN;
+
+        buildValueIndex();
+        int j = valueIndex.first(y, first < y);
+        if (j < 0)
+            return Double.NaN;
+        return ValueScan.crossing(xs[j-1], ys[j-1], xs[j], ys[j], y);
+    }
+
+    private void buildValueIndex() {
+        if (!valueIndex.isBuilt()) {
+            valueIndex.reset(length);
+            for (int i = 0; i < length; i++)
+                valueIndex.put(i, ys[i]);
+            valueIndex.build();
+        }
+    }
+
+    //Значение в x, лежащем на отрезке [x(i); x(i+1)]
+    private double valueInSegment(int i, double x) {
+        double x1 = xs[i], x2 = xs[i+1];
+
+        if (Math.abs(x - x1) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по нему y
+            return ys[i];
+
+        if (Math.abs(x - x2) <= EPSILON)
+            return ys[i+1];
+
+        return ys[i] + (x - x1) * (ys[i+1] - ys[i]) / (x2 - x1); //Считаем значение по формуле
+    }
+
+    //Номер отрезка [x(i); x(i+1)] для x из области определения: наименьшее i, при котором x(i+1) + EPSILON >= x
+    private int locateSegment(double x) {
+        return SegmentSearch.locate(abscissas, length, uniform ? step : 0, x);
+    }
+
+    //Число шагов поиска отрезка для x без изменения состояния (для метрик); 0 вне области определения
+    public int segmentSearchSteps(double x) {
+        if (!((x + EPSILON >= getLeftDomainBorder()) && (x - EPSILON <= getRightDomainBorder())))
+            return 0;
+
+        return SegmentSearch.steps(abscissas, length, uniform ? step : 0, x);
+    }
+
+    public FunctionPoint getPoint(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return new FunctionPoint(xs[index], ys[index]); //Объект создается только на границе интерфейса
+    }
+
+    public double getPointX(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return xs[index];
+    }
+
+    public double getPointY(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return ys[index];
+    }
+
+    public void forEachPoint(int from, int to, PointConsumer consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null");
+        }
+        if (from < 0 || from > to || to > length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        for (int i = from; i < to; i++)
+            consumer.accept(xs[i], ys[i]);
+    }
+
+    public void copyXs(double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - length) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        System.arraycopy(xs, 0, target, offset, length);
+    }
+
+    public void copyYs(double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - length) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        System.arraycopy(ys, 0, target, offset, length);
+    }
+
+    //Сеттеры
+    public void setPoint(int index, FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= length || point == null) {
+            throw new FunctionPointIndexOutOfBoundsException(); //Проверка индекса
+        }
+        setPointX(index, point.getX());
+        ys[index] = point.getY();
+        refreshAreas(index);
+        valueIndex.set(index, point.getY());
+        modificationCount++;
+    }
+
+    public void setPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+
+        //Проверка попадания в интервалы
+        if ((index > 0 && x - EPSILON <= xs[index-1]) ||
+                (index < length - 1 && x + EPSILON >= xs[index+1])) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        if (x != xs[index])
+            uniform = false; //Сетка перестает быть равномерной
+        xs[index] = x;
+        refreshAreas(index);
+        modificationCount++;
+    }
+
+    public void setPointY(int index, double y) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        ys[index] = y;
+        refreshAreas(index);
+        valueIndex.set(index, y);
+        modificationCount++;
+    }
+
+    public void deletePoint(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+
+        if (length < 3) {
+            throw new IllegalStateException();
+        }
+
+        if (index != 0 && index != length-1) //Удаление крайней точки сохраняет равномерность сетки
+            uniform = false;
+
+        System.arraycopy(xs, index + 1, xs, index, length - index - 1); //Сдвигаем элементы влево
+        System.arraycopy(ys, index + 1, ys, index, length - index - 1);
+        length--;
+        areaIndex.invalidate(); //Номера отрезков сдвинулись - индекс строится заново при следующем запросе
+        valueIndex.invalidate();
+        modificationCount++;
+    }
+
+    public void addPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (point == null) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        double x = point.getX();
+        int low = 0, high = length; //Ищем место для новой точки по х: первый индекс, где xs[i] + EPSILON >= x
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid] + EPSILON >= x)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        int index = low;
+        if (index < length && Math.abs(x - xs[index]) <= EPSILON) { //Если совпадает с другой точкой
+            throw new InappropriateFunctionPointException();
+        }
+
+        if (length == xs.length) { //Массивы заполнены - увеличиваем их в полтора раза
+            int capacity = length + (length >> 1) + 1;
+            double[] extendedXs = new double[capacity];
+            double[] extendedYs = new double[capacity];
+            System.arraycopy(xs, 0, extendedXs, 0, length);
+            System.arraycopy(ys, 0, extendedYs, 0, length);
+            xs = extendedXs;
+            ys = extendedYs;
+        }
+
+        System.arraycopy(xs, index, xs, index + 1, length - index); //Сдвиг элементов вправо
+        System.arraycopy(ys, index, ys, index + 1, length - index);
+        xs[index] = x;
+        ys[index] = point.getY();
+        length++;
+        uniform = false;
+        areaIndex.invalidate(); //Номера отрезков сдвинулись - индекс строится заново при следующем запросе
+        valueIndex.invalidate();
+        modificationCount++;
+    }
+
+    //Замена всех точек набором EditBatch без проверок; его массивы становятся массивами таблицы без копирования
+    public EditResult replacePoints(EditBatch.Replacement replacement) {
+        this.xs = replacement.xs;
+        this.ys = replacement.ys;
+        this.length = replacement.length;
+        uniform = false;
+        areaIndex.invalidate();
+        valueIndex.invalidate();
+        modificationCount++;
+        return EditResult.SUCCESS;
+    }
+}
@@ -0,0 +1,6 @@
+package functions;
+
+//Аналитически заданная функция одной переменной
+public interface ScalarFunction {
+    double apply(double x);
+}
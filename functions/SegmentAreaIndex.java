@@ -0,0 +1,85 @@
+package functions;
+
+//Дерево Фенвика над площадями трапеций под отрезками ломаной: сумма площадей первых k отрезков за O(log n),
+//изменение площади одного отрезка и добавление отрезка в конец - тоже за O(log n).
+//Приращения накапливают ошибку округления, поэтому после числа изменений, равного числу отрезков,
+//индекс помечается непостроенным и при следующем запросе строится заново из точных площадей
+final class SegmentAreaIndex {
+    private double[] areas = new double[0];
+    private double[] tree = new double[1]; //Нумерация с 1
+    private int count = -1; //Число отрезков; -1 - индекс не построен
+    private int updates;
+
+    static double trapezoid(double x1, double y1, double x2, double y2) {
+        return (x2 - x1) * (y1 + y2) / 2;
+    }
+
+    boolean isBuilt() {
+        return count >= 0;
+    }
+
+    void invalidate() {
+        count = -1;
+    }
+
+    //Начало построения: затем площади задаются через put и вызывается build
+    void reset(int segments) {
+        if (areas.length < segments) {
+            int capacity = segments + (segments >> 1) + 1; //Запас для добавления отрезков в конец
+            areas = new double[capacity];
+            tree = new double[capacity + 1];
+        }
+        count = segments;
+        updates = 0;
+    }
+
+    void put(int segment, double area) {
+        areas[segment] = area;
+    }
+
+    //Построение за O(n): каждая ячейка передает накопленную сумму ячейке, которая ее покрывает
+    void build() {
+        for (int i = 0; i < count; i++)
+            tree[i + 1] = areas[i];
+        for (int i = 1; i <= count; i++) {
+            int parent = i + (i & -i);
+            if (parent <= count)
+                tree[parent] += tree[i];
+        }
+    }
+
+    void set(int segment, double area) {
+        if (count < 0)
+            return;
+        if (++updates > count) {
+            invalidate();
+            return;
+        }
+        double delta = area - areas[segment];
+        areas[segment] = area;
+        for (int i = segment + 1; i <= count; i += i & -i)
+            tree[i] += delta;
+    }
+
+    //Новый отрезок справа от всех имеющихся
+    void append(double area) {
+        if (count < 0)
+            return;
+        if (count == areas.length || ++updates > count) {
+            invalidate();
+            return;
+        }
+        int k = count + 1; //Ячейка k покрывает отрезки [k - (k & -k); k - 1]
+        areas[count] = area;
+        tree[k] = area + prefix(count) - prefix(k - (k & -k));
+        count = k;
+    }
+
+    //Сумма площадей отрезков [0; k)
+    double prefix(int k) {
+        double sum = 0;
+        for (int i = k; i > 0; i -= i & -i)
+            sum += tree[i];
+        return sum;
+    }
+}
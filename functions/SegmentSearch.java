@@ -0,0 +1,84 @@
+package functions;
+
+//Поиск отрезка [x(i); x(i+1)], содержащего x, общий для реализаций с доступом к абсциссам по номеру:
+//на равномерной сетке номер вычисляется сразу и уточняется с учетом EPSILON, иначе - бинарный поиск
+final class SegmentSearch {
+    private static final double EPSILON = 1e-9;
+
+    //Абсцисса точки по номеру без проверки границ
+    interface Abscissas {
+        double x(int index);
+    }
+
+    //Таблицы, которые сообщают число шагов поиска отрезка для x без изменения состояния (для метрик
+    //InstrumentedTabulatedFunction): 0 вне области определения; обертки передают вызов дальше и возвращают -1,
+    //если обернутая таблица шаги не сообщает
+    interface Measured {
+        int segmentSearchSteps(double x);
+    }
+
+    private SegmentSearch() {
+    }
+
+    //Наименьшее i, при котором x(i+1) + EPSILON >= x, для x из области определения таблицы из length >= 2 точек;
+    //step > 0 - точки образуют равномерную сетку с этим шагом
+    static int locate(Abscissas xs, int length, double step, double x) {
+        int last = length - 2;
+
+        if (step > 0) {
+            int i = (int) ((x - xs.x(0)) / step);
+            if (i < 0)
+                i = 0;
+            else if (i > last)
+                i = last;
+            while (i > 0 && xs.x(i) + EPSILON >= x)
+                i--;
+            while (i < last && xs.x(i + 1) + EPSILON < x)
+                i++;
+            return i;
+        }
+
+        int low = 0, high = last;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs.x(mid + 1) + EPSILON >= x)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        return low;
+    }
+
+    //Число шагов того же поиска (для метрик)
+    static int steps(Abscissas xs, int length, double step, double x) {
+        int last = length - 2, steps = 1;
+
+        if (step > 0) {
+            int i = (int) ((x - xs.x(0)) / step);
+            if (i < 0)
+                i = 0;
+            else if (i > last)
+                i = last;
+            while (i > 0 && xs.x(i) + EPSILON >= x) {
+                i--;
+                steps++;
+            }
+            while (i < last && xs.x(i + 1) + EPSILON < x) {
+                i++;
+                steps++;
+            }
+            return steps;
+        }
+
+        int low = 0, high = last;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs.x(mid + 1) + EPSILON >= x)
+                high = mid;
+            else
+                low = mid + 1;
+            steps++;
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,21 @@
+package functions;
+
+//Результат прореживания табулированной функции: новая функция и достигнутая погрешность
+public final class SimplificationResult {
+    private final ArrayTabulatedFunction function;
+    private final double maxError;
+
+    SimplificationResult(ArrayTabulatedFunction function, double maxError) {
+        this.function = function;
+        this.maxError = maxError;
+    }
+
+    public ArrayTabulatedFunction getFunction() {
+        return function;
+    }
+
+    //Наибольшее отклонение новой функции от исходной в точках исходной таблицы
+    public double getMaxError() {
+        return maxError;
+    }
+}
@@ -0,0 +1,57 @@
+package functions;
+
+//Сортировка точек, заданных параллельными массивами (классы java.util в работе не используются)
+final class Sorting {
+    private Sorting() {
+    }
+
+    //Устойчивая сортировка слиянием пар (keys[i], values[i]) на [from; to) по возрастанию keys
+    static void sort(double[] keys, double[] values, int from, int to) {
+        int count = to - from;
+        if (count < 2)
+            return;
+
+        double[] keysBuffer = new double[count];
+        double[] valuesBuffer = new double[count];
+        double[] srcKeys = keys, srcValues = values, dstKeys = keysBuffer, dstValues = valuesBuffer;
+        int srcOffset = from, dstOffset = 0;
+
+        for (int width = 1; width < count; width *= 2) { //Слияние соседних отсортированных отрезков длины width
+            for (int low = 0; low < count; low += 2 * width) {
+                int middle = Math.min(low + width, count);
+                int high = Math.min(low + 2 * width, count);
+                int i = low, j = middle, k = low;
+                while (i < middle && j < high) {
+                    if (srcKeys[srcOffset + j] < srcKeys[srcOffset + i]) {
+                        dstKeys[dstOffset + k] = srcKeys[srcOffset + j];
+                        dstValues[dstOffset + k++] = srcValues[srcOffset + j++];
+                    } else {
+                        dstKeys[dstOffset + k] = srcKeys[srcOffset + i];
+                        dstValues[dstOffset + k++] = srcValues[srcOffset + i++];
+                    }
+                }
+                while (i < middle) {
+                    dstKeys[dstOffset + k] = srcKeys[srcOffset + i];
+                    dstValues[dstOffset + k++] = srcValues[srcOffset + i++];
+                }
+                while (j < high) {
+                    dstKeys[dstOffset + k] = srcKeys[srcOffset + j];
+                    dstValues[dstOffset + k++] = srcValues[srcOffset + j++];
+                }
+            }
+            double[] swapKeys = srcKeys, swapValues = srcValues; //Меняем источник и приемник местами
+            int swapOffset = srcOffset;
+            srcKeys = dstKeys;
+            srcValues = dstValues;
+            srcOffset = dstOffset;
+            dstKeys = swapKeys;
+            dstValues = swapValues;
+            dstOffset = swapOffset;
+        }
+
+        if (srcKeys != keys) { //Результат оказался в буфере
+            System.arraycopy(srcKeys, srcOffset, keys, from, count);
+            System.arraycopy(srcValues, srcOffset, values, from, count);
+        }
+    }
+}
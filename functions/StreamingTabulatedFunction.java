@@ -0,0 +1,318 @@
+package functions;
+
+//Табулированная функция для потока отсчетов с возрастающим x (например, данных датчика по времени).
+//Точки хранятся в кольцевом буфере: добавление справа стоит амортизированно O(1), а при заданных
+//ограничениях (число точек, ширина окна по x) самые левые точки отбрасываются без сдвига массива.
+//Пока точек меньше двух, значение функции не определено (NaN)
+public class StreamingTabulatedFunction implements TabulatedFunction, EditBatch.Replaceable, SegmentSearch.Measured {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final double EPSILON = 1e-9;
+    private final int maxPoints;
+    private final double maxSpan;
+
+    private double[] xs = new double[INITIAL_CAPACITY]; //Размер - степень двойки, номер ячейки (head + i) & (размер - 1)
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private int head; //Ячейка самой левой точки
+    private int length;
+    private long modificationCount; //Число изменений таблицы, см. getModificationCount
+
+    private final SegmentSearch.Abscissas abscissas = new SegmentSearch.Abscissas() { //Абсциссы для поиска отрезка
+        public double x(int index) {
+            return StreamingTabulatedFunction.this.x(index);
+        }
+    };
+
+    //Без ограничений: точки только накапливаются
+    public StreamingTabulatedFunction() {
+        this(Integer.MAX_VALUE, Double.POSITIVE_INFINITY);
+    }
+
+    //Хранятся не более maxPoints последних точек, и правая граница отстоит от левой не больше чем на maxSpan;
+    //две последние точки сохраняются всегда
+    public StreamingTabulatedFunction(int maxPoints, double maxSpan) {
+        if (maxPoints < 2) {
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+        if (!(maxSpan > 0)) {
+            throw new IllegalArgumentException("Window span must be positive");
+        }
+        this.maxPoints = maxPoints;
+        this.maxSpan = maxSpan;
+    }
+
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    public double getMaxSpan() {
+        return maxSpan;
+    }
+
+    private int slot(int index) {
+        return (head + index) & (xs.length - 1);
+    }
+
+    private double x(int index) {
+        return xs[(head + index) & (xs.length - 1)];
+    }
+
+    private double y(int index) {
+        return ys[(head + index) & (xs.length - 1)];
+    }
+
+    //Увеличение буфера вдвое с разворачиванием кольца в начало массивов
+    private void grow() {
+        double[] newXs = new double[xs.length * 2];
+        double[] newYs = new double[ys.length * 2];
+        int first = Math.min(length, xs.length - head);
+        System.arraycopy(xs, head, newXs, 0, first);
+        System.arraycopy(ys, head, newYs, 0, first);
+        System.arraycopy(xs, 0, newXs, first, length - first);
+        System.arraycopy(ys, 0, newYs, first, length - first);
+        xs = newXs;
+        ys = newYs;
+        head = 0;
+    }
+
+    //Отбрасывание левых точек, не попадающих в окно
+    private void retain() {
+        while (length > 2 && (length > maxPoints || x(length - 1) - x(0) > maxSpan)) {
+            head = (head + 1) & (xs.length - 1);
+            length--;
+        }
+    }
+
+    //Добавление очередного отсчета правее всех имеющихся: проверяется только правая граница
+    public void appendPoint(double x, double y)
+            throws InappropriateFunctionPointException {
+        if (Double.isNaN(x) || (length > 0 && !(x - EPSILON > x(length - 1)))) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        if (length == xs.length)
+            grow();
+        int index = slot(length);
+        xs[index] = x;
+        ys[index] = y;
+        length++;
+        retain();
+        modificationCount++;
+    }
+
+    public void appendPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (point == null) {
+            throw new InappropriateFunctionPointException();
+        }
+        appendPoint(point.getX(), point.getY());
+    }
+
+    public double getLeftDomainBorder() {
+        if (length == 0) {
+            throw new IllegalStateException("Function has no points yet");
+        }
+        return x(0);
+    }
+
+    public double getRightDomainBorder() {
+        if (length == 0) {
+            throw new IllegalStateException("Function has no points yet");
+        }
+        return x(length - 1);
+    }
+
+    public int getPointsCount() {
+        return length;
+    }
+
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    public double getFunctionValue(double x) {
+        if (length < 2 || !((x + EPSILON >= x(0)) && (x - EPSILON <= x(length - 1))))
+            return Double.NaN; //x в пределах области функции
+
+        int low = SegmentSearch.locate(abscissas, length, 0, x); //Отрезок [x(i); x(i+1)]
+
+        double x1 = x(low), x2 = x(low + 1);
+        if (Math.abs(x - x1) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по ней y
+            return y(low);
+
+        if (Math.abs(x - x2) <= EPSILON)
+            return y(low + 1);
+
+        return y(low) + (x - x1) * (y(low + 1) - y(low)) / (x2 - x1); //Считаем значение по формуле
+    }
+
+    //Число шагов поиска отрезка для x (для метрик); 0 вне области определения
+    public int segmentSearchSteps(double x) {
+        if (length < 2 || !((x + EPSILON >= x(0)) && (x - EPSILON <= x(length - 1))))
+            return 0;
+
+        return SegmentSearch.steps(abscissas, length, 0, x);
+    }
+
+    public FunctionPoint getPoint(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return new FunctionPoint(x(index), y(index));
+    }
+
+    public double getPointX(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return x(index);
+    }
+
+    public double getPointY(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        return y(index);
+    }
+
+    public void forEachPoint(int from, int to, PointConsumer consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null");
+        }
+        if (from < 0 || from > to || to > length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        for (int i = from; i < to; i++)
+            consumer.accept(x(i), y(i));
+    }
+
+    public void copyXs(double[] target, int offset) {
+        copyCoordinates(xs, target, offset);
+    }
+
+    public void copyYs(double[] target, int offset) {
+        copyCoordinates(ys, target, offset);
+    }
+
+    //Кольцо копируется не более чем двумя кусками
+    private void copyCoordinates(double[] source, double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - length) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        int first = Math.min(length, source.length - head);
+        System.arraycopy(source, head, target, offset, first);
+        System.arraycopy(source, 0, target, offset + first, length - first);
+    }
+
+    public void setPoint(int index, FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= length || point == null) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        setPointX(index, point.getX());
+        ys[slot(index)] = point.getY();
+    }
+
+    //Изменение x может сузить или расширить окно; точки при этом не отбрасываются до следующего добавления
+    public void setPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+
+        //Проверка попадания в интервалы
+        if ((index > 0 && x - EPSILON <= x(index - 1)) ||
+                (index < length - 1 && x + EPSILON >= x(index + 1))) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        xs[slot(index)] = x;
+        modificationCount++;
+    }
+
+    public void setPointY(int index, double y) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        ys[slot(index)] = y;
+        modificationCount++;
+    }
+
+    public void deletePoint(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        if (length < 3) {
+            throw new IllegalStateException();
+        }
+
+        if (index == 0) { //Левая точка отбрасывается так же, как при сдвиге окна
+            head = (head + 1) & (xs.length - 1);
+        } else {
+            for (int i = index; i < length - 1; i++) { //Сдвиг следующих точек влево по кольцу
+                int to = slot(i), from = slot(i + 1);
+                xs[to] = xs[from];
+                ys[to] = ys[from];
+            }
+        }
+        length--;
+        modificationCount++;
+    }
+
+    //Вставка в произвольное место: O(n), для отсчетов по возрастанию x следует использовать appendPoint
+    public void addPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (point == null || Double.isNaN(point.getX())) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        double x = point.getX();
+        int low = 0, high = length; //Ищем место для новой точки по х: первый индекс, где x(i) + EPSILON >= x
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (x(mid) + EPSILON >= x)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        int index = low;
+        if (index < length && Math.abs(x - x(index)) <= EPSILON) { //Если совпадает с другой точкой
+            throw new InappropriateFunctionPointException();
+        }
+
+        if (length == xs.length)
+            grow();
+        for (int i = length; i > index; i--) { //Сдвиг элементов вправо по кольцу
+            int to = slot(i), from = slot(i - 1);
+            xs[to] = xs[from];
+            ys[to] = ys[from];
+        }
+        xs[slot(index)] = x;
+        ys[slot(index)] = point.getY();
+        length++;
+        retain();
+        modificationCount++;
+    }
+
+    //Замена всех точек набором EditBatch без проверок: кольцо заполняется заново с начала массивов, затем окно
+    //отбрасывает лишние левые точки, как после addPoint. Если среди них есть добавленная или измененная набором,
+    //результат - WINDOW_DROPPED с первой такой операцией
+    public EditResult replacePoints(EditBatch.Replacement replacement) {
+        int capacity = xs.length;
+        while (capacity < replacement.length)
+            capacity <<= 1;
+        if (capacity != xs.length) {
+            xs = new double[capacity];
+            ys = new double[capacity];
+        }
+        System.arraycopy(replacement.xs, 0, xs, 0, replacement.length);
+        System.arraycopy(replacement.ys, 0, ys, 0, replacement.length);
+        head = 0;
+        length = replacement.length;
+        retain();
+        modificationCount++;
+
+        int operation = replacement.firstOperation(replacement.length - length);
+        return operation < 0 ? EditResult.SUCCESS : new EditResult(EditResult.WINDOW_DROPPED, operation);
+    }
+}
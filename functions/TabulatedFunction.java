@@ -7,10 +7,78 @@ public interface TabulatedFunction {
 
     double getFunctionValue(double x);
 
+    //Пакетное вычисление: out[k] = getFunctionValue(xs[k]) для всех k
+    default void getFunctionValues(double[] xs, double[] out) {
+        if (xs == null || out == null || out.length < xs.length)
+            throw new IllegalArgumentException("Output array must be at least as long as arguments array");
+        getFunctionValues(xs, 0, xs.length, out);
+    }
+
+    //Пакетное вычисление для аргументов xs[from..to), результаты записываются в out[from..to)
+    default void getFunctionValues(double[] xs, int from, int to, double[] out) {
+        if (xs == null || out == null || from < 0 || from > to || to > xs.length || to > out.length)
+            throw new IllegalArgumentException("Invalid arguments range");
+        for (int k = from; k < to; k++)
+            out[k] = getFunctionValue(xs[k]);
+    }
+
     int getPointsCount();
 
+    //Интеграл ломаной по [a; b] (при a > b - со знаком минус); NaN, если a или b вне области определения
+    default double integral(double a, double b) {
+        return TrapezoidSum.integral(this, a, b);
+    }
+
+    //Наименьшее (наибольшее) значение функции на [a; b] при любом порядке границ; NaN, если a или b вне области определения
+    default double getMinValue(double a, double b) {
+        return ValueScan.extremum(this, a, b, false);
+    }
+
+    default double getMaxValue(double a, double b) {
+        return ValueScan.extremum(this, a, b, true);
+    }
+
+    //Наименьший x, при котором значение функции равно y; NaN, если такого x нет
+    default double getArgument(double y) {
+        return ValueScan.argument(this, y);
+    }
+
+    //Счетчик изменений таблицы: увеличивается при каждом изменении точек, по нему кэши узнают об устаревании
+    long getModificationCount();
+
     FunctionPoint getPoint(int index);
 
+    //Обход точек с номерами [from; to) по возрастанию x без создания объектов FunctionPoint
+    default void forEachPoint(int from, int to, PointConsumer consumer) {
+        if (consumer == null)
+            throw new IllegalArgumentException("Consumer must not be null");
+        if (from < 0 || from > to || to > getPointsCount())
+            throw new FunctionPointIndexOutOfBoundsException();
+        for (int i = from; i < to; i++)
+            consumer.accept(getPointX(i), getPointY(i));
+    }
+
+    default void forEachPoint(PointConsumer consumer) {
+        forEachPoint(0, getPointsCount(), consumer);
+    }
+
+    //Копирование всех абсцисс (ординат) в target начиная с offset
+    default void copyXs(double[] target, int offset) {
+        int length = getPointsCount();
+        if (target == null || offset < 0 || offset > target.length - length)
+            throw new IllegalArgumentException("Target array is too small");
+        for (int i = 0; i < length; i++)
+            target[offset + i] = getPointX(i);
+    }
+
+    default void copyYs(double[] target, int offset) {
+        int length = getPointsCount();
+        if (target == null || offset < 0 || offset > target.length - length)
+            throw new IllegalArgumentException("Target array is too small");
+        for (int i = 0; i < length; i++)
+            target[offset + i] = getPointY(i);
+    }
+
     void setPoint(int index, FunctionPoint point)
             throws InappropriateFunctionPointException;
 
@@ -0,0 +1,54 @@
+package functions;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+//Ссылка на текущую версию неизменяемой функции. Новая версия подменяет старую атомарно;
+//вычисления, начатые на старой версии, завершаются на ней же
+public class TabulatedFunctionHolder {
+    private static final VarHandle CURRENT;
+
+    static {
+        try {
+            CURRENT = MethodHandles.lookup().findVarHandle(TabulatedFunctionHolder.class, "current",
+                    ImmutableTabulatedFunction.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile ImmutableTabulatedFunction current;
+
+    public TabulatedFunctionHolder(ImmutableTabulatedFunction initial) {
+        if (initial == null) {
+            throw new IllegalArgumentException("Function must not be null");
+        }
+        this.current = initial;
+    }
+
+    public ImmutableTabulatedFunction get() {
+        return current;
+    }
+
+    public void set(ImmutableTabulatedFunction function) {
+        if (function == null) {
+            throw new IllegalArgumentException("Function must not be null");
+        }
+        current = function;
+    }
+
+    public ImmutableTabulatedFunction getAndSet(ImmutableTabulatedFunction function) {
+        if (function == null) {
+            throw new IllegalArgumentException("Function must not be null");
+        }
+        return (ImmutableTabulatedFunction) CURRENT.getAndSet(this, function);
+    }
+
+    //Публикует function, только если текущая версия все еще expected (версии сравниваются по ссылке)
+    public boolean compareAndSet(ImmutableTabulatedFunction expected, ImmutableTabulatedFunction function) {
+        if (function == null) {
+            throw new IllegalArgumentException("Function must not be null");
+        }
+        return CURRENT.compareAndSet(this, expected, function);
+    }
+}
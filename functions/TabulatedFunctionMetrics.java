@@ -0,0 +1,221 @@
+package functions;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+//Счетчики вызовов, гистограммы задержек, выходы за область определения, исключения и шаги поиска отрезка.
+//Значения хранятся в нескольких полосах (по потокам), чтобы потоки не боролись за одни и те же ячейки;
+//запись не выделяет память, при чтении полосы суммируются
+public class TabulatedFunctionMetrics implements TabulatedFunctionMetricsMBean {
+    static final String[] METHODS = {
+            "getLeftDomainBorder", "getRightDomainBorder", "getFunctionValue", "getFunctionValues",
+            "getPointsCount", "getPoint", "setPoint", "getPointX", "setPointX", "getPointY", "setPointY",
+            "deletePoint", "addPoint", "integral", "getMinValue", "getMaxValue", "getArgument", "forEachPoint",
+            "copyXs", "copyYs"
+    };
+    static final String[] EXCEPTIONS = {
+            "FunctionPointIndexOutOfBoundsException", "InappropriateFunctionPointException",
+            "IllegalStateException", "IllegalArgumentException", "UnsupportedOperationException", "other"
+    };
+
+    //Гистограмма как в HdrHistogram: значения до 16 нс точно, дальше по 8 корзин на каждую степень двойки
+    private static final int EXACT_BUCKETS = 16;
+    private static final int SUB_BUCKETS = 8;
+    private static final int MAX_EXPONENT = 40; //Около 18 минут, большие задержки попадают в последнюю корзину
+    static final int BUCKETS = EXACT_BUCKETS + (MAX_EXPONENT - 3) * SUB_BUCKETS;
+
+    //Расположение ячеек внутри полосы
+    private static final int CALLS = 0;
+    private static final int EXCEPTION_COUNTS = CALLS + METHODS.length;
+    private static final int OUT_OF_DOMAIN = EXCEPTION_COUNTS + EXCEPTIONS.length;
+    private static final int SEARCH_SAMPLES = OUT_OF_DOMAIN + 1;
+    private static final int SEARCH_STEPS = SEARCH_SAMPLES + 1;
+    private static final int HISTOGRAMS = SEARCH_STEPS + 1;
+    private static final int PADDING = 16; //128 байт между полосами против ложного разделения кэш-линий
+    private static final int STRIPE_SIZE = HISTOGRAMS + METHODS.length * BUCKETS + PADDING;
+
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] cells;
+    private final int stripeMask;
+
+    public TabulatedFunctionMetrics() {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 16)
+            stripes <<= 1;
+        this.stripeMask = stripes - 1;
+        this.cells = new long[stripes * STRIPE_SIZE];
+    }
+
+    //Начало полосы текущего потока
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        return ((int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & stripeMask) * STRIPE_SIZE;
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < EXACT_BUCKETS)
+            return nanos < 0 ? 0 : (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+        int sub = (int) (nanos >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return EXACT_BUCKETS + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    //Наибольшее значение, попадающее в корзину
+    static long bucketUpperBound(int bucket) {
+        if (bucket < EXACT_BUCKETS)
+            return bucket;
+        int exponent = (bucket - EXACT_BUCKETS) / SUB_BUCKETS + 4;
+        int sub = (bucket - EXACT_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+    }
+
+    void recordCall(int method, long nanos) {
+        int base = stripe();
+        CELLS.getAndAdd(cells, base + HISTOGRAMS + method * BUCKETS + bucket(nanos), 1L);
+        CELLS.getAndAdd(cells, base + CALLS + method, 1L);
+    }
+
+    //Число вызовов метода в полосе текущего потока, чтобы вызывающий мог делать выборку
+    long stripeCallCount(int method) {
+        return (long) CELLS.getOpaque(cells, stripe() + CALLS + method);
+    }
+
+    void recordException(RuntimeException error) {
+        int type = EXCEPTIONS.length - 1;
+        if (error instanceof FunctionPointIndexOutOfBoundsException)
+            type = 0;
+        else if (error instanceof IllegalStateException)
+            type = 2;
+        else if (error instanceof IllegalArgumentException)
+            type = 3;
+        else if (error instanceof UnsupportedOperationException)
+            type = 4;
+        CELLS.getAndAdd(cells, stripe() + EXCEPTION_COUNTS + type, 1L);
+    }
+
+    void recordInappropriatePoint() {
+        CELLS.getAndAdd(cells, stripe() + EXCEPTION_COUNTS + 1, 1L);
+    }
+
+    void recordOutOfDomain(long count) {
+        CELLS.getAndAdd(cells, stripe() + OUT_OF_DOMAIN, count);
+    }
+
+    void recordSearchSteps(int steps) {
+        int base = stripe();
+        CELLS.getAndAdd(cells, base + SEARCH_SAMPLES, 1L);
+        CELLS.getAndAdd(cells, base + SEARCH_STEPS, (long) steps);
+    }
+
+    //Сумма ячейки по всем полосам
+    private long sum(int offset) {
+        long total = 0;
+        for (int base = 0; base < cells.length; base += STRIPE_SIZE)
+            total += (long) CELLS.getVolatile(cells, base + offset);
+        return total;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name))
+                return i;
+        }
+        throw new IllegalArgumentException("Unknown name " + name);
+    }
+
+    public long getCallCount(String method) {
+        return sum(CALLS + indexOf(METHODS, method));
+    }
+
+    public long getExceptionCount(String type) {
+        return sum(EXCEPTION_COUNTS + indexOf(EXCEPTIONS, type));
+    }
+
+    //Задержка метода (нс), которую не превышает доля quantile вызовов, с точностью до корзины гистограммы
+    public long getLatencyPercentile(String method, double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Quantile must be in [0; 1]");
+        }
+        int histogram = HISTOGRAMS + indexOf(METHODS, method) * BUCKETS;
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] = sum(histogram + b);
+            total += counts[b];
+        }
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank)
+                return bucketUpperBound(b);
+        }
+        return bucketUpperBound(BUCKETS - 1);
+    }
+
+    public long getTotalCalls() {
+        long total = 0;
+        for (int m = 0; m < METHODS.length; m++)
+            total += sum(CALLS + m);
+        return total;
+    }
+
+    public long getOutOfDomainCount() {
+        return sum(OUT_OF_DOMAIN);
+    }
+
+    public long getExceptionCount() {
+        long total = 0;
+        for (int e = 0; e < EXCEPTIONS.length; e++)
+            total += sum(EXCEPTION_COUNTS + e);
+        return total;
+    }
+
+    //Среднее число шагов поиска отрезка по выборке вызовов getFunctionValue (NaN, если выборки нет)
+    public double getAverageSearchSteps() {
+        long samples = sum(SEARCH_SAMPLES);
+        return samples == 0 ? Double.NaN : (double) sum(SEARCH_STEPS) / samples;
+    }
+
+    //Текстовый снимок всех метрик
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("method,calls,p50_ns,p90_ns,p99_ns,max_ns\n");
+        for (String method : METHODS) {
+            long calls = getCallCount(method);
+            if (calls == 0)
+                continue;
+            report.append(method).append(',').append(calls)
+                    .append(',').append(getLatencyPercentile(method, 0.5))
+                    .append(',').append(getLatencyPercentile(method, 0.9))
+                    .append(',').append(getLatencyPercentile(method, 0.99))
+                    .append(',').append(getLatencyPercentile(method, 1)).append('\n');
+        }
+        report.append("outOfDomain,").append(getOutOfDomainCount()).append('\n');
+        for (String type : EXCEPTIONS)
+            report.append("exception.").append(type).append(',').append(getExceptionCount(type)).append('\n');
+        report.append("averageSearchSteps,").append(getAverageSearchSteps()).append('\n');
+        return report.toString();
+    }
+
+    public void writeReport(Path file) throws IOException {
+        Files.write(file, getReport().getBytes(StandardCharsets.UTF_8));
+    }
+
+    //Регистрация в платформенном MBean-сервере, например под именем "functions:type=Metrics,name=table1"
+    public void registerMBean(String objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+    }
+}
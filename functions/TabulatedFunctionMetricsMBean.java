@@ -0,0 +1,14 @@
+package functions;
+
+//Атрибуты метрик табулированной функции, доступные через JMX
+public interface TabulatedFunctionMetricsMBean {
+    long getTotalCalls();
+
+    long getOutOfDomainCount();
+
+    long getExceptionCount();
+
+    double getAverageSearchSteps();
+
+    String getReport();
+}
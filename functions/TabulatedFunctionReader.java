@@ -0,0 +1,116 @@
+package functions;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+
+//Потоковое чтение табулированных функций, записанных TabulatedFunctionWriter.
+//Точки создаются сразу при чтении и передаются функции без промежуточных копий
+public class TabulatedFunctionReader implements Closeable {
+    private static final double EPSILON = 1e-9;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BinaryFormat.BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private int count; //Заголовок последней прочитанной функции
+    private boolean uniform;
+    private double left;
+    private double step;
+
+    public TabulatedFunctionReader(ReadableByteChannel channel) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel must not be null");
+        }
+        this.channel = channel;
+        buffer.flip(); //Буфер изначально пуст
+    }
+
+    public ArrayTabulatedFunction readArrayTabulatedFunction() throws IOException {
+        FunctionPoint[] points = readPoints();
+        return new ArrayTabulatedFunction(points, count, uniform && step > 0 ? step : 0);
+    }
+
+    public LinkedListTabulatedFunction readLinkedListTabulatedFunction() throws IOException {
+        FunctionPoint[] points = readPoints();
+        return new LinkedListTabulatedFunction(points, count);
+    }
+
+    //Массив точек растет по мере чтения: число точек из поврежденного заголовка не приводит к большому выделению памяти
+    private FunctionPoint[] readPoints() throws IOException {
+        readHeader();
+
+        FunctionPoint[] points = new FunctionPoint[Math.min(count, INITIAL_CAPACITY)];
+        for (int i = 0; i < count; i++) {
+            double x = uniform ? left + i * step : readDouble();
+            if (i > 0 && !(x - EPSILON > points[i-1].getX())) {
+                throw new IOException("Points are not ordered by x");
+            }
+            if (i == points.length) {
+                FunctionPoint[] extendedPoints = new FunctionPoint[(int) Math.min(count, 2L * points.length)];
+                System.arraycopy(points, 0, extendedPoints, 0, i);
+                points = extendedPoints;
+            }
+            points[i] = new FunctionPoint(x, uniform ? readDouble() : 0); //На равномерной сетке y идут сразу
+        }
+        if (!uniform) {
+            for (int i = 0; i < count; i++) {
+                points[i].setY(readDouble());
+            }
+        }
+        return points;
+    }
+
+    private void readHeader() throws IOException {
+        require(BinaryFormat.HEADER_SIZE);
+        if (buffer.getInt() != BinaryFormat.MAGIC) {
+            throw new IOException("Not a tabulated function stream");
+        }
+        int version = buffer.getInt();
+        if (version != BinaryFormat.VERSION) {
+            throw new IOException("Unsupported tabulated function format version " + version);
+        }
+        uniform = (buffer.getInt() & BinaryFormat.FLAG_UNIFORM) != 0;
+        buffer.getInt();
+        long pointsCount = buffer.getLong();
+        if (pointsCount < 2 || pointsCount > Integer.MAX_VALUE) {
+            throw new IOException("Invalid points count " + pointsCount);
+        }
+        left = buffer.getDouble();
+        step = buffer.getDouble();
+        if (channel instanceof SeekableByteChannel) { //Для файла число точек сверяется с оставшейся длиной
+            SeekableByteChannel file = (SeekableByteChannel) channel;
+            long available = buffer.remaining() + file.size() - file.position();
+            if (8 * pointsCount * (uniform ? 1 : 2) > available) {
+                throw new IOException("Points count " + pointsCount + " exceeds stream length");
+            }
+        }
+        count = (int) pointsCount;
+    }
+
+    private double readDouble() throws IOException {
+        require(8);
+        return buffer.getDouble();
+    }
+
+    //Дочитывает из канала, пока в буфере не окажется хотя бы bytes байт
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes)
+            return;
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of tabulated function stream");
+            }
+        }
+        buffer.flip();
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,72 @@
+package functions;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+//Потоковая запись табулированных функций в канал в двоичном формате (см. BinaryFormat).
+//Функции записываются одна за другой через общий буфер
+public class TabulatedFunctionWriter implements Closeable, Flushable {
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BinaryFormat.BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    public TabulatedFunctionWriter(WritableByteChannel channel) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel must not be null");
+        }
+        this.channel = channel;
+    }
+
+    public void write(TabulatedFunction function) throws IOException {
+        int count = function.getPointsCount();
+        double left = function.getLeftDomainBorder();
+        double step = (function.getRightDomainBorder() - left) / (count - 1);
+        boolean uniform = true; //Сетку можно не хранить, если x восстанавливаются по left и step точно
+        for (int i = 0; i < count && uniform; i++) {
+            uniform = function.getPointX(i) == left + i * step;
+        }
+
+        ensureRemaining(BinaryFormat.HEADER_SIZE);
+        buffer.putInt(BinaryFormat.MAGIC)
+                .putInt(BinaryFormat.VERSION)
+                .putInt(uniform ? BinaryFormat.FLAG_UNIFORM : 0)
+                .putInt(0)
+                .putLong(count)
+                .putDouble(left)
+                .putDouble(step);
+
+        if (!uniform) {
+            for (int i = 0; i < count; i++) {
+                ensureRemaining(8);
+                buffer.putDouble(function.getPointX(i));
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            ensureRemaining(8);
+            buffer.putDouble(function.getPointY(i));
+        }
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            flush();
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
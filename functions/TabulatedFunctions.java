@@ -0,0 +1,381 @@
+package functions;
+
+//Создание табулированных функций и операции над ними
+public final class TabulatedFunctions {
+    private static final int MIN_CHUNK = 1024; //Меньшие части не окупают передачу другому потоку
+    private static final int BATCH_SIZE = 4096; //Размер порции аргументов для BatchFunction
+    private static final double EPSILON = 1e-9;
+
+    //Поточечные операции для combine
+    private static final int SUM = 0;
+    private static final int DIFFERENCE = 1;
+    private static final int PRODUCT = 2;
+
+    private TabulatedFunctions() {
+    }
+
+    //Табулирование функции на равномерной сетке; значения вычисляются параллельно на всех ядрах
+    public static ArrayTabulatedFunction tabulate(ScalarFunction function, double leftX, double rightX, int pointsCount) {
+        if (function == null) {
+            throw new IllegalArgumentException("Function must not be null");
+        }
+        return tabulate(function, null, leftX, rightX, pointsCount);
+    }
+
+    public static ArrayTabulatedFunction tabulate(BatchFunction function, double leftX, double rightX, int pointsCount) {
+        if (function == null) {
+            throw new IllegalArgumentException("Function must not be null");
+        }
+        return tabulate(null, function, leftX, rightX, pointsCount);
+    }
+
+    private static ArrayTabulatedFunction tabulate(ScalarFunction scalar, BatchFunction batch,
+                                                   double leftX, double rightX, int pointsCount) {
+        if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
+            throw new IllegalArgumentException("Right border must be greater than left border");
+        }
+
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        double delta = (rightX - leftX) / (pointsCount - 1);
+        Tabulation task = new Tabulation(scalar, batch, new FunctionPoint[pointsCount], leftX, delta);
+        task.execute();
+        return new ArrayTabulatedFunction(task.points, pointsCount, delta); //Точки передаются функции без копирования
+    }
+
+    //Прореживание: поднабор точек, линейная интерполяция по которому отличается от исходной функции в каждой ее точке
+    //не больше чем на max(absoluteError, relativeError * |y|). Крайние точки, а значит и область определения, сохраняются
+    public static SimplificationResult simplify(TabulatedFunction function, double absoluteError, double relativeError) {
+        if (function == null) {
+            throw new IllegalArgumentException("Function must not be null");
+        }
+        if (!(absoluteError >= 0) || !(relativeError >= 0)) {
+            throw new IllegalArgumentException("Errors must be non-negative");
+        }
+
+        int n = function.getPointsCount();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) { //По порядку номеров - для списка это проход от запомненного узла
+            xs[i] = function.getPointX(i);
+            ys[i] = function.getPointY(i);
+        }
+
+        //Жадно: от опорной точки отрезок продлевается, пока прямая до конца отрезка проходит через
+        //допуски всех промежуточных точек. Допустимые наклоны образуют "конус" [low; high], который
+        //сужается с каждой точкой, так что проверка каждой точки стоит O(1)
+        int[] kept = new int[n];
+        int count = 0;
+        int anchor = 0;
+        kept[count++] = 0;
+        while (anchor < n - 1) {
+            double low = Double.NEGATIVE_INFINITY, high = Double.POSITIVE_INFINITY;
+            int reach = anchor + 1;
+            for (int j = anchor + 1; j < n; j++) {
+                double dx = xs[j] - xs[anchor];
+                double slope = (ys[j] - ys[anchor]) / dx;
+                if (slope >= low && slope <= high) //Прямая до точки j проходит через допуски точек между ними
+                    reach = j;
+                double tolerance = Math.max(absoluteError, relativeError * Math.abs(ys[j]));
+                low = Math.max(low, (ys[j] - tolerance - ys[anchor]) / dx);
+                high = Math.min(high, (ys[j] + tolerance - ys[anchor]) / dx);
+                if (!(low <= high)) //Конус пуст (или в данных NaN) - дальше отрезок не продлить
+                    break;
+            }
+            kept[count++] = reach;
+            anchor = reach;
+        }
+
+        FunctionPoint[] points = new FunctionPoint[count];
+        double maxError = 0;
+        for (int s = 0; s < count; s++) {
+            int a = kept[s];
+            points[s] = new FunctionPoint(xs[a], ys[a]);
+            if (s == count - 1)
+                break;
+            int b = kept[s+1];
+            for (int j = a + 1; j < b; j++) { //Погрешность считается по той же формуле, что и getFunctionValue
+                double x = xs[j], value;
+                if (Math.abs(x - xs[a]) <= EPSILON)
+                    value = ys[a];
+                else if (Math.abs(x - xs[b]) <= EPSILON)
+                    value = ys[b];
+                else
+                    value = ys[a] + (x - xs[a]) * (ys[b] - ys[a]) / (xs[b] - xs[a]);
+                maxError = Math.max(maxError, Math.abs(value - ys[j]));
+            }
+        }
+        return new SimplificationResult(new ArrayTabulatedFunction(points, count, 0), maxError);
+    }
+
+    public static ArrayTabulatedFunction sum(TabulatedFunction f, TabulatedFunction g) {
+        return combine(f, g, SUM);
+    }
+
+    public static ArrayTabulatedFunction difference(TabulatedFunction f, TabulatedFunction g) {
+        return combine(f, g, DIFFERENCE);
+    }
+
+    public static ArrayTabulatedFunction product(TabulatedFunction f, TabulatedFunction g) {
+        return combine(f, g, PRODUCT);
+    }
+
+    //Поточечная операция над функциями на объединении их узлов в пределах общей области определения.
+    //Узлы сливаются за один проход, значения каждой функции берутся по отрезку, указатель на который
+    //только сдвигается вправо, - всего O(n + m). Узлы, отстоящие друг от друга не больше EPSILON, сливаются в один
+    private static ArrayTabulatedFunction combine(TabulatedFunction f, TabulatedFunction g, int operation) {
+        if (f == null || g == null) {
+            throw new IllegalArgumentException("Functions must not be null");
+        }
+
+        int n = f.getPointsCount(), m = g.getPointsCount();
+        double[] fx = new double[n], fy = new double[n];
+        double[] gx = new double[m], gy = new double[m];
+        f.copyXs(fx, 0);
+        f.copyYs(fy, 0);
+        g.copyXs(gx, 0);
+        g.copyYs(gy, 0);
+
+        double left = Math.max(fx[0], gx[0]), right = Math.min(fx[n-1], gx[m-1]);
+        if (!(right - left > EPSILON)) {
+            throw new IllegalArgumentException("Functions have no common domain");
+        }
+
+        FunctionPoint[] points = new FunctionPoint[n + m];
+        int count = 0;
+        int i = 0, j = 0; //Следующие узлы f и g при слиянии
+        int fs = 0, gs = 0; //Текущие отрезки f и g
+        double last = Double.NEGATIVE_INFINITY;
+        while (i < n || j < m) {
+            double x = (j >= m || (i < n && fx[i] <= gx[j])) ? fx[i++] : gx[j++];
+            if (x < left || x > right)
+                continue;
+            if (x - last <= EPSILON) {
+                if (x != right)
+                    continue;
+                count--; //Правая граница заменяет близкий к ней узел, чтобы область определения сохранилась
+            }
+
+            while (fs < n - 2 && fx[fs+1] + EPSILON < x)
+                fs++;
+            while (gs < m - 2 && gx[gs+1] + EPSILON < x)
+                gs++;
+            double u = interpolate(fx, fy, fs, x), v = interpolate(gx, gy, gs, x);
+            double y;
+            switch (operation) {
+                case SUM:
+                    y = u + v;
+                    break;
+                case DIFFERENCE:
+                    y = u - v;
+                    break;
+                default:
+                    y = u * v;
+                    break;
+            }
+            points[count++] = new FunctionPoint(x, y);
+            last = x;
+        }
+        return new ArrayTabulatedFunction(points, count, 0);
+    }
+
+    //Композиция f(g(x)) на области определения g; все значения g должны лежать в области определения f.
+    //Кроме узлов g добавляются точки, в которых g проходит через узлы f, поэтому результат совпадает
+    //с f(g(x)) во всей области, а не только в узлах. Значения f в узлах g находятся бинарным поиском
+    public static ArrayTabulatedFunction compose(TabulatedFunction f, TabulatedFunction g) {
+        if (f == null || g == null) {
+            throw new IllegalArgumentException("Functions must not be null");
+        }
+
+        int n = f.getPointsCount(), m = g.getPointsCount();
+        double[] fx = new double[n], fy = new double[n];
+        double[] gx = new double[m], gy = new double[m];
+        f.copyXs(fx, 0);
+        f.copyYs(fy, 0);
+        g.copyXs(gx, 0);
+        g.copyYs(gy, 0);
+
+        for (int j = 0; j < m; j++) { //Экстремумы кусочно-линейной g - в ее узлах
+            if (!((gy[j] + EPSILON >= fx[0]) && (gy[j] - EPSILON <= fx[n-1]))) {
+                throw new IllegalArgumentException("Inner function values must lie in the outer function domain");
+            }
+        }
+
+        FunctionPoint[] points = new FunctionPoint[m];
+        int count = 0;
+        for (int j = 0; j < m; j++) {
+            points = append(points, count++, new FunctionPoint(gx[j], valueAt(fx, fy, gy[j])));
+            if (j == m - 1)
+                break;
+            if (Math.abs(gy[j] - gy[j+1]) < EPSILON) //На горизонтальном отрезке g узлы f не проходятся
+                continue;
+
+            //Узлы f строго между g(a) и g(b) - в порядке прохождения их отрезком g
+            double a = gx[j], b = gx[j+1], ga = gy[j], gb = gy[j+1];
+            double low = Math.min(ga, gb) + EPSILON, high = Math.max(ga, gb) - EPSILON;
+            int first = 0, end = n; //Первый узел f правее low
+            while (first < end) {
+                int mid = (first + end) >>> 1;
+                if (fx[mid] > low)
+                    end = mid;
+                else
+                    first = mid + 1;
+            }
+            int last = first;
+            while (last < n && fx[last] < high)
+                last++;
+
+            double previous = a;
+            for (int t = 0; t < last - first; t++) {
+                int k = ga < gb ? first + t : last - 1 - t;
+                double x = a + (fx[k] - ga) * (b - a) / (gb - ga); //Прообраз узла f на отрезке g
+                if (x - previous > EPSILON && b - x > EPSILON) {
+                    points = append(points, count++, new FunctionPoint(x, fy[k]));
+                    previous = x;
+                }
+            }
+        }
+        return new ArrayTabulatedFunction(points, count, 0);
+    }
+
+    //Копия точек для конструкторов по набору точек; x должны возрастать больше чем на EPSILON
+    static FunctionPoint[] copyOrderedPoints(FunctionPoint[] points) {
+        if (points == null || points.length < 2) {
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        FunctionPoint[] copy = new FunctionPoint[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null || (i > 0 && !(points[i].getX() - EPSILON > points[i-1].getX()))) {
+                throw new IllegalArgumentException("Points must be ordered by x");
+            }
+            copy[i] = new FunctionPoint(points[i]);
+        }
+        return copy;
+    }
+
+    private static FunctionPoint[] append(FunctionPoint[] points, int count, FunctionPoint point) {
+        if (count == points.length) {
+            FunctionPoint[] extendedPoints = new FunctionPoint[points.length + (points.length >> 1) + 1];
+            System.arraycopy(points, 0, extendedPoints, 0, count);
+            points = extendedPoints;
+        }
+        points[count] = point;
+        return points;
+    }
+
+    //Значение по узлам xs, ys в x из области определения: бинарный поиск отрезка, как в getFunctionValue
+    private static double valueAt(double[] xs, double[] ys, double x) {
+        int low = 0, high = xs.length - 2;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid+1] + EPSILON >= x)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        return interpolate(xs, ys, low, x);
+    }
+
+    //Значение на отрезке [x(i); x(i+1)] по той же формуле, что и в реализациях TabulatedFunction
+    private static double interpolate(double[] xs, double[] ys, int i, double x) {
+        if (Math.abs(x - xs[i]) <= EPSILON)
+            return ys[i];
+        if (Math.abs(x - xs[i+1]) <= EPSILON)
+            return ys[i+1];
+        return ys[i] + (x - xs[i]) * (ys[i+1] - ys[i]) / (xs[i+1] - xs[i]);
+    }
+
+    //Заполнение массива точек частями; свободные потоки забирают следующую необработанную часть
+    private static final class Tabulation implements Runnable {
+        private final ScalarFunction scalar;
+        private final BatchFunction batch;
+        private final FunctionPoint[] points;
+        private final double leftX;
+        private final double delta;
+        private final int chunk;
+        private int nextChunk; //Номер первой точки следующей части, защищен монитором объекта
+        private Throwable failure;
+
+        Tabulation(ScalarFunction scalar, BatchFunction batch, FunctionPoint[] points, double leftX, double delta) {
+            this.scalar = scalar;
+            this.batch = batch;
+            this.points = points;
+            this.leftX = leftX;
+            this.delta = delta;
+            int threads = Runtime.getRuntime().availableProcessors();
+            this.chunk = Math.max(MIN_CHUNK, points.length / (threads * 4) + 1); //По несколько частей на поток для баланса
+        }
+
+        void execute() {
+            int threads = Math.min(Runtime.getRuntime().availableProcessors(), (points.length + chunk - 1) / chunk);
+            Thread[] workers = new Thread[threads - 1];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Thread(this, "tabulation-" + i);
+                workers[i].start();
+            }
+            run(); //Вызывающий поток работает наравне с остальными
+
+            boolean interrupted = false;
+            for (Thread worker : workers) {
+                while (true) {
+                    try {
+                        worker.join();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+
+            if (failure instanceof RuntimeException)
+                throw (RuntimeException) failure;
+            if (failure instanceof Error)
+                throw (Error) failure;
+        }
+
+        private synchronized int claim() {
+            if (failure != null || nextChunk >= points.length)
+                return -1;
+            int from = nextChunk;
+            nextChunk = Math.min(points.length, from + chunk);
+            return from;
+        }
+
+        private synchronized void fail(Throwable error) {
+            if (failure == null)
+                failure = error;
+        }
+
+        public void run() {
+            try {
+                double[] args = batch == null ? null : new double[BATCH_SIZE];
+                double[] values = batch == null ? null : new double[BATCH_SIZE];
+                for (int from = claim(); from >= 0; from = claim()) {
+                    int to = Math.min(points.length, from + chunk);
+                    if (batch == null) {
+                        for (int i = from; i < to; i++) {
+                            double x = leftX + i * delta;
+                            points[i] = new FunctionPoint(x, scalar.apply(x));
+                        }
+                    } else {
+                        for (int start = from; start < to; start += BATCH_SIZE) {
+                            int count = Math.min(BATCH_SIZE, to - start);
+                            for (int k = 0; k < count; k++)
+                                args[k] = leftX + (start + k) * delta;
+                            batch.apply(args, values, count);
+                            for (int k = 0; k < count; k++)
+                                points[start + k] = new FunctionPoint(args[k], values[k]);
+                        }
+                    }
+                }
+            } catch (Throwable error) {
+                fail(error);
+            }
+        }
+    }
+}
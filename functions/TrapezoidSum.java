@@ -0,0 +1,41 @@
+package functions;
+
+//Интеграл ломаной по [from; to], накапливаемый при последовательном обходе точек (реализация integral по умолчанию)
+final class TrapezoidSum implements PointConsumer {
+    private static final double EPSILON = 1e-9;
+
+    private final double from;
+    private final double to;
+    private boolean started;
+    private double previousX;
+    private double previousY;
+    private double area;
+
+    private TrapezoidSum(double from, double to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    static double integral(TabulatedFunction function, double a, double b) {
+        double left = function.getLeftDomainBorder(), right = function.getRightDomainBorder();
+        if (!((a + EPSILON >= left) && (a - EPSILON <= right) && (b + EPSILON >= left) && (b - EPSILON <= right)))
+            return Double.NaN; //a и b в пределах области функции
+
+        TrapezoidSum sum = new TrapezoidSum(Math.min(a, b), Math.max(a, b));
+        function.forEachPoint(sum);
+        return a <= b ? sum.area : -sum.area;
+    }
+
+    public void accept(double x, double y) {
+        if (started) { //Часть отрезка [previousX; x], попадающая в [from; to]
+            double low = Math.max(previousX, from), high = Math.min(x, to);
+            if (low < high) {
+                double slope = (y - previousY) / (x - previousX);
+                area += (high - low) * (previousY + (low - previousX) * slope + previousY + (high - previousX) * slope) / 2;
+            }
+        }
+        started = true;
+        previousX = x;
+        previousY = y;
+    }
+}
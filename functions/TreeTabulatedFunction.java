@@ -0,0 +1,539 @@
+package functions;
+
+public class TreeTabulatedFunction implements TabulatedFunction, EditBatch.Replaceable, SegmentSearch.Measured {
+    private final double EPSILON = 1e-9;
+
+    //Узел AVL-дерева, упорядоченного по x; size - число узлов в поддереве для доступа по номеру,
+    //first/last - крайние узлы поддерева, area - площадь под ломаной между ними (для integral),
+    //minY/maxY - наименьшая и наибольшая ордината в поддереве (для getMinValue, getMaxValue, getArgument)
+    private static class TreeNode {
+        double x;
+        double y;
+        TreeNode left;
+        TreeNode right;
+        int height = 1;
+        int size = 1;
+        TreeNode first = this;
+        TreeNode last = this;
+        double area;
+        double minY;
+        double maxY;
+
+        TreeNode(double x, double y) {
+            this.x = x;
+            this.y = y;
+            this.minY = y;
+            this.maxY = y;
+        }
+    }
+
+    private TreeNode root;
+    private long modificationCount; //Число изменений таблицы, см. getModificationCount
+
+    public TreeTabulatedFunction(double leftX, double rightX, int pointsCount) {
+        if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
+            throw new IllegalArgumentException("Right border must be greater than left border");
+        }
+
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        double delta = (rightX - leftX) / (pointsCount - 1); //Создание точек через равные по х промежутки
+        root = build(0, pointsCount, leftX, delta, null);
+    }
+
+    public TreeTabulatedFunction(double leftX, double rightX, double[] values) {
+        if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
+            throw new IllegalArgumentException("Right border must be greater than left border");
+        }
+
+        if (values == null || values.length < 2) { // Защита от null и пустого массива
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        double delta = (rightX - leftX) / (values.length - 1);
+        root = build(0, values.length, leftX, delta, values);
+    }
+
+    //Сбалансированное дерево из точек с номерами [from; to) равномерной сетки
+    private static TreeNode build(int from, int to, double leftX, double delta, double[] values) {
+        if (from >= to)
+            return null;
+        int mid = (from + to) >>> 1;
+        TreeNode node = new TreeNode(leftX + mid * delta, values == null ? 0 : values[mid]);
+        node.left = build(from, mid, leftX, delta, values);
+        node.right = build(mid + 1, to, leftX, delta, values);
+        update(node);
+        return node;
+    }
+
+    //Сбалансированное дерево из точек с номерами [from; to) упорядоченного набора
+    private static TreeNode build(double[] xs, double[] ys, int from, int to) {
+        if (from >= to)
+            return null;
+        int mid = (from + to) >>> 1;
+        TreeNode node = new TreeNode(xs[mid], ys[mid]);
+        node.left = build(xs, ys, from, mid);
+        node.right = build(xs, ys, mid + 1, to);
+        update(node);
+        return node;
+    }
+
+    private static int size(TreeNode node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(TreeNode node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(TreeNode node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.size = size(node.left) + size(node.right) + 1;
+        node.first = node;
+        node.last = node;
+        node.area = 0;
+        node.minY = node.y;
+        node.maxY = node.y;
+        if (node.left != null) {
+            node.first = node.left.first;
+            node.area += node.left.area + trapezoid(node.left.last, node);
+            node.minY = Math.min(node.minY, node.left.minY);
+            node.maxY = Math.max(node.maxY, node.left.maxY);
+        }
+        if (node.right != null) {
+            node.last = node.right.last;
+            node.area += node.right.area + trapezoid(node, node.right.first);
+            node.minY = Math.min(node.minY, node.right.minY);
+            node.maxY = Math.max(node.maxY, node.right.maxY);
+        }
+    }
+
+    private static double trapezoid(TreeNode p1, TreeNode p2) {
+        return (p2.x - p1.x) * (p1.y + p2.y) / 2;
+    }
+
+    //Пересчет сумм на пути к узлу с номером index после изменения его координат на месте
+    private static void refresh(TreeNode node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize)
+            refresh(node.left, index);
+        else if (index > leftSize)
+            refresh(node.right, index - leftSize - 1);
+        update(node);
+    }
+
+    private static TreeNode rotateRight(TreeNode node) {
+        TreeNode pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static TreeNode rotateLeft(TreeNode node) {
+        TreeNode pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    //Восстановление AVL-баланса после изменения поддеревьев
+    private static TreeNode balance(TreeNode node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right))
+                node.left = rotateLeft(node.left);
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left))
+                node.right = rotateRight(node.right);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static TreeNode insert(TreeNode node, double x, double y) {
+        if (node == null)
+            return new TreeNode(x, y);
+        if (x < node.x)
+            node.left = insert(node.left, x, y);
+        else
+            node.right = insert(node.right, x, y);
+        return balance(node);
+    }
+
+    private static TreeNode removeByIndex(TreeNode node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            node.left = removeByIndex(node.left, index);
+        } else if (index > leftSize) {
+            node.right = removeByIndex(node.right, index - leftSize - 1);
+        } else {
+            if (node.left == null)
+                return node.right;
+            if (node.right == null)
+                return node.left;
+            TreeNode successor = node.right; //Замещаем удаляемую точку следующей за ней
+            while (successor.left != null)
+                successor = successor.left;
+            node.x = successor.x;
+            node.y = successor.y;
+            node.right = removeByIndex(node.right, 0);
+        }
+        return balance(node);
+    }
+
+    //Узел с заданным номером за O(log n)
+    private TreeNode getNodeByIndex(int index) {
+        if (index < 0 || index >= size(root)) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+
+        TreeNode node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    //Первый узел, для которого x(j) + EPSILON >= x, или null
+    private TreeNode lowerBound(double x) {
+        TreeNode node = root, candidate = null;
+        while (node != null) {
+            if (node.x + EPSILON >= x) {
+                candidate = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return candidate;
+    }
+
+    public double getLeftDomainBorder() {
+        TreeNode node = root;
+        while (node.left != null)
+            node = node.left;
+        return node.x;
+    }
+
+    public double getRightDomainBorder() {
+        TreeNode node = root;
+        while (node.right != null)
+            node = node.right;
+        return node.x;
+    }
+
+    public int getPointsCount() {
+        return size(root);
+    }
+
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    public double getFunctionValue(double x) {
+        if ((x + EPSILON < getLeftDomainBorder()) || (x - EPSILON > getRightDomainBorder()))
+            return Double.NaN; //x в пределах области функции
+
+        //Правый конец отрезка - первый узел с x(j) + EPSILON >= x, левый - предшествующий ему
+        TreeNode node = root, p1 = null, p2 = null;
+        while (node != null) {
+            if (node.x + EPSILON >= x) {
+                p2 = node;
+                node = node.left;
+            } else {
+                p1 = node;
+                node = node.right;
+            }
+        }
+        if (p2 == null) //x = NaN
+            return Double.NaN;
+        if (p1 == null) { //x у левой границы - первый отрезок
+            p1 = getNodeByIndex(0);
+            p2 = getNodeByIndex(1);
+        }
+
+        if (Math.abs(x - p1.x) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по ней y
+            return p1.y;
+
+        if (Math.abs(x - p2.x) <= EPSILON)
+            return p2.y;
+
+        return p1.y + (x - p1.x) * (p2.y - p1.y) / (p2.x - p1.x); //Считаем значение по формуле
+    }
+
+    //Число узлов на пути поиска отрезка для x (для метрик); 0 вне области определения
+    public int segmentSearchSteps(double x) {
+        if (!((x + EPSILON >= getLeftDomainBorder()) && (x - EPSILON <= getRightDomainBorder())))
+            return 0;
+
+        int steps = 0;
+        for (TreeNode node = root; node != null; steps++)
+            node = node.x + EPSILON >= x ? node.left : node.right;
+        return steps;
+    }
+
+    //Интеграл за O(log n) по площадям поддеревьев
+    public double integral(double a, double b) {
+        double left = getLeftDomainBorder(), right = getRightDomainBorder();
+        if (!((a + EPSILON >= left) && (a - EPSILON <= right) && (b + EPSILON >= left) && (b - EPSILON <= right)))
+            return Double.NaN; //a и b в пределах области функции
+
+        return areaBefore(Math.min(Math.max(b, left), right)) - areaBefore(Math.min(Math.max(a, left), right));
+    }
+
+    //Площадь под ломаной от левой границы до x: спуск как в getFunctionValue с суммированием
+    //площадей поддеревьев, целиком лежащих левее отрезка с x
+    private double areaBefore(double x) {
+        TreeNode node = root, p1 = null, p2 = null;
+        double area = 0;
+        while (node != null) {
+            if (node.x + EPSILON >= x) {
+                p2 = node;
+                node = node.left;
+            } else {
+                if (node.left != null) {
+                    if (p1 != null)
+                        area += trapezoid(p1, node.left.first);
+                    area += node.left.area;
+                    p1 = node.left.last;
+                }
+                if (p1 != null)
+                    area += trapezoid(p1, node);
+                p1 = node;
+                node = node.right;
+            }
+        }
+        if (p1 == null) //x у левой границы
+            return 0;
+
+        double y = p1.y + (x - p1.x) * (p2.y - p1.y) / (p2.x - p1.x);
+        return area + (x - p1.x) * (p1.y + y) / 2;
+    }
+
+    public double getMinValue(double a, double b) {
+        return extremum(a, b, false);
+    }
+
+    public double getMaxValue(double a, double b) {
+        return extremum(a, b, true);
+    }
+
+    //Значения на концах [a; b] и наименьшее (наибольшее) значение узлов между ними по ординатам поддеревьев
+    private double extremum(double a, double b, boolean maximum) {
+        double left = getLeftDomainBorder(), right = getRightDomainBorder();
+        if (!((a + EPSILON >= left) && (a - EPSILON <= right) && (b + EPSILON >= left) && (b - EPSILON <= right)))
+            return Double.NaN; //a и b в пределах области функции
+
+        double low = Math.min(Math.max(Math.min(a, b), left), right), high = Math.min(Math.max(Math.max(a, b), left), right);
+        double atLow = getFunctionValue(low), atHigh = getFunctionValue(high);
+        double result = maximum ? Math.max(atLow, atHigh) : Math.min(atLow, atHigh);
+        double inner = extremum(root, rank(low), rank(high), maximum); //Узлы строго между концами
+        return maximum ? Math.max(result, inner) : Math.min(result, inner);
+    }
+
+    //Число узлов с x(j) + EPSILON < x
+    private int rank(double x) {
+        int rank = 0;
+        TreeNode node = root;
+        while (node != null) {
+            if (node.x + EPSILON >= x) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    //Наименьшая (наибольшая) ордината узлов поддерева с номерами [from; to) внутри него
+    private static double extremum(TreeNode node, int from, int to, boolean maximum) {
+        double result = maximum ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        while (node != null && from < to) {
+            if (from <= 0 && to >= node.size) //Поддерево целиком внутри диапазона
+                return maximum ? Math.max(result, node.maxY) : Math.min(result, node.minY);
+            int leftSize = size(node.left);
+            if (from < leftSize) {
+                double inner = extremum(node.left, from, Math.min(to, leftSize), maximum);
+                result = maximum ? Math.max(result, inner) : Math.min(result, inner);
+            }
+            if (from <= leftSize && leftSize < to)
+                result = maximum ? Math.max(result, node.y) : Math.min(result, node.y);
+            from = Math.max(0, from - leftSize - 1); //Правое поддерево - без рекурсии
+            to -= leftSize + 1;
+            node = node.right;
+        }
+        return result;
+    }
+
+    //Наименьший x со значением y: спуск к первому узлу, достигающему y, по ординатам поддеревьев
+    public double getArgument(double y) {
+        TreeNode first = root.first;
+        if (y == first.y)
+            return first.x;
+        if (!(first.y < y || first.y > y)) //y или первое значение - NaN
+            return Double.NaN;
+
+        boolean upward = first.y < y;
+        if (upward ? !(root.maxY >= y) : !(root.minY <= y))
+            return Double.NaN;
+
+        TreeNode node = root, previous = null; //previous - последний узел, от которого спуск ушел вправо
+        while (true) {
+            if (node.left != null && (upward ? node.left.maxY >= y : node.left.minY <= y)) {
+                node = node.left;
+            } else if (upward ? node.y >= y : node.y <= y) {
+                break;
+            } else {
+                previous = node;
+                node = node.right;
+            }
+        }
+        if (node.left != null)
+            previous = node.left.last;
+        return ValueScan.crossing(previous.x, previous.y, node.x, node.y, y);
+    }
+
+    public FunctionPoint getPoint(int index) {
+        TreeNode node = getNodeByIndex(index);
+        return new FunctionPoint(node.x, node.y);
+    }
+
+    public double getPointX(int index) {
+        return getNodeByIndex(index).x;
+    }
+
+    public double getPointY(int index) {
+        return getNodeByIndex(index).y;
+    }
+
+    //Симметричный обход поддерева по номерам [from; to) внутри него, глубина рекурсии - высота дерева
+    private static void visit(TreeNode node, int from, int to, PointConsumer consumer) {
+        while (node != null && from < to) {
+            int leftSize = size(node.left);
+            if (from < leftSize)
+                visit(node.left, from, Math.min(to, leftSize), consumer);
+            if (from <= leftSize && leftSize < to)
+                consumer.accept(node.x, node.y);
+            from = Math.max(0, from - leftSize - 1); //Правое поддерево - без рекурсии
+            to -= leftSize + 1;
+            node = node.right;
+        }
+    }
+
+    //Запись координат поддерева по порядку начиная с offset, возвращает следующую свободную позицию
+    private static int fill(TreeNode node, double[] target, int offset, boolean ordinates) {
+        while (node != null) {
+            offset = fill(node.left, target, offset, ordinates);
+            target[offset++] = ordinates ? node.y : node.x;
+            node = node.right;
+        }
+        return offset;
+    }
+
+    public void forEachPoint(int from, int to, PointConsumer consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null");
+        }
+        if (from < 0 || from > to || to > size(root)) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        visit(root, from, to, consumer);
+    }
+
+    public void copyXs(double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - size(root)) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        fill(root, target, offset, false);
+    }
+
+    public void copyYs(double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - size(root)) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        fill(root, target, offset, true);
+    }
+
+    public void setPoint(int index, FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= size(root) || point == null) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        setPointX(index, point.getX());
+        getNodeByIndex(index).y = point.getY();
+        refresh(root, index);
+        modificationCount++;
+    }
+
+    public void setPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        TreeNode node = getNodeByIndex(index);
+
+        //Проверка попадания в интервалы - порядок узлов в дереве при этом сохраняется
+        if ((index > 0 && x - EPSILON <= getNodeByIndex(index - 1).x) ||
+                (index < size(root) - 1 && x + EPSILON >= getNodeByIndex(index + 1).x)) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        node.x = x;
+        refresh(root, index);
+        modificationCount++;
+    }
+
+    public void setPointY(int index, double y) {
+        getNodeByIndex(index).y = y;
+        refresh(root, index);
+        modificationCount++;
+    }
+
+    public void deletePoint(int index) {
+        if (index < 0 || index >= size(root)) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        if (size(root) < 3) {
+            throw new IllegalStateException();
+        }
+        root = removeByIndex(root, index);
+        modificationCount++;
+    }
+
+    public void addPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (point == null) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        //Совпасть с новой точкой может только первый узел, не лежащий левее x - EPSILON
+        TreeNode nearest = lowerBound(point.getX());
+        if (nearest != null && Math.abs(nearest.x - point.getX()) <= EPSILON) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        root = insert(root, point.getX(), point.getY());
+        modificationCount++;
+    }
+
+    //Замена всех точек набором EditBatch без проверок; дерево строится заново по его массивам
+    public EditResult replacePoints(EditBatch.Replacement replacement) {
+        root = build(replacement.xs, replacement.ys, 0, replacement.length);
+        modificationCount++;
+        return EditResult.SUCCESS;
+    }
+}
@@ -0,0 +1,481 @@
+package functions;
+
+//Развернутый связный список: узел хранит блок до BLOCK_SIZE точек в массивах примитивов.
+//Вставка и удаление в середине по-прежнему сдвигают не больше одного блока, а проход по точкам идет
+//по соседним ячейкам памяти вместо пары объектов (узел и FunctionPoint) на каждую точку.
+//Переполненный блок делится пополам, малозаполненный сливается с соседним
+public class UnrolledLinkedListTabulatedFunction implements TabulatedFunction, EditBatch.Replaceable, SegmentSearch.Measured {
+    private static final int BLOCK_SIZE = 64;
+    private static final int MIN_FILL = BLOCK_SIZE / 4; //Блок с меньшим числом точек пытается слиться с соседом
+
+    private final double EPSILON = 1e-9;
+
+    private static class Block {
+        final double[] xs;
+        final double[] ys;
+        int count;
+        Block prev;
+        Block next;
+
+        Block(int capacity) { //Голова списка создается с нулевой емкостью
+            this.xs = new double[capacity];
+            this.ys = new double[capacity];
+            this.prev = this;
+            this.next = this;
+        }
+    }
+
+    private final Block head = new Block(0);
+    private int length;
+    private long modificationCount; //Число изменений таблицы, см. getModificationCount
+    private Block lastBlock = head; //Блок, к которому было последнее обращение, и номер его первой точки (-1 - нет)
+    private int lastStart = -1;
+
+    public UnrolledLinkedListTabulatedFunction(double leftX, double rightX, int pointsCount) {
+        if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
+            throw new IllegalArgumentException("Right border must be greater than left border");
+        }
+
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        double delta = (rightX - leftX) / (pointsCount - 1); //Создание точек через равные по х промежутки
+        for (int i = 0; i < pointsCount; i++)
+            addToTail(leftX + i * delta, 0);
+    }
+
+    public UnrolledLinkedListTabulatedFunction(double leftX, double rightX, double[] values) {
+        if (leftX >= rightX) { //Проверка на соответствие левой и правой границы
+            throw new IllegalArgumentException("Right border must be greater than left border");
+        }
+
+        if (values == null || values.length < 2) { // Защита от null и пустого массива
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        double delta = (rightX - leftX) / (values.length - 1);
+        for (int i = 0; i < values.length; i++)
+            addToTail(leftX + i * delta, values[i]);
+    }
+
+    //Конструктор по набору упорядоченных по x точек
+    public UnrolledLinkedListTabulatedFunction(FunctionPoint[] points) {
+        if (points == null || points.length < 2) {
+            throw new IllegalArgumentException("There must be at least 2 points in tabulated function");
+        }
+
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null || (i > 0 && points[i].getX() - EPSILON <= points[i-1].getX())) {
+                throw new IllegalArgumentException("Points must be ordered by x");
+            }
+        }
+        for (int i = 0; i < points.length; i++)
+            addToTail(points[i].getX(), points[i].getY());
+    }
+
+    //Добавление в конец: блоки заполняются целиком, новый блок заводится только при переполнении
+    private void addToTail(double x, double y) {
+        Block tail = head.prev;
+        if (tail == head || tail.count == BLOCK_SIZE) {
+            tail = new Block(BLOCK_SIZE);
+            linkAfter(head.prev, tail);
+        }
+        tail.xs[tail.count] = x;
+        tail.ys[tail.count] = y;
+        tail.count++;
+        length++;
+    }
+
+    private static void linkAfter(Block block, Block added) {
+        added.prev = block;
+        added.next = block.next;
+        block.next.prev = added;
+        block.next = added;
+    }
+
+    private static void unlink(Block block) {
+        block.prev.next = block.next;
+        block.next.prev = block.prev;
+    }
+
+    //Блок с точкой номер index; номер его первой точки остается в lastStart
+    private Block locate(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+
+        Block block;
+        int start;
+        if (index < length / 2) { //Выбираем сторону поиска для оптимизации
+            block = head.next;
+            start = 0;
+        } else {
+            block = head.prev;
+            start = length - block.count;
+        }
+        //Если последний использованный блок ближе, идем от него
+        if (lastStart >= 0 && Math.abs(index - lastStart) < Math.abs(index - start)) {
+            block = lastBlock;
+            start = lastStart;
+        }
+
+        while (index < start) {
+            block = block.prev;
+            start -= block.count;
+        }
+        while (index >= start + block.count) {
+            start += block.count;
+            block = block.next;
+        }
+
+        lastBlock = block;
+        lastStart = start;
+        return block;
+    }
+
+    //Блок, в котором лежит первая точка с x(j) + EPSILON >= x (или последний блок, если таких точек нет);
+    //поиск идет от последнего использованного блока, номер первой точки блока остается в lastStart
+    private Block seek(double x) {
+        Block block = head.next;
+        int start = 0;
+        if (lastStart >= 0) {
+            block = lastBlock;
+            start = lastStart;
+        }
+
+        while (block.prev != head && block.prev.xs[block.prev.count - 1] + EPSILON >= x) {
+            block = block.prev;
+            start -= block.count;
+        }
+        while (block.next != head && block.xs[block.count - 1] + EPSILON < x) {
+            start += block.count;
+            block = block.next;
+        }
+
+        lastBlock = block;
+        lastStart = start;
+        return block;
+    }
+
+    //Первое место в блоке, где x(j) + EPSILON >= x
+    private int lowerBound(Block block, double x) {
+        int low = 0, high = block.count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (block.xs[mid] + EPSILON >= x)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        return low;
+    }
+
+    //Значение в x, если первая точка с x(j) + EPSILON >= x - это точка offset блока block
+    private double valueAt(Block block, int offset, double x) {
+        Block left = block, right = block;
+        int i = offset - 1, j = offset;
+        if (i < 0) {
+            if (block.prev != head) { //Левый конец отрезка - последняя точка предыдущего блока
+                left = block.prev;
+                i = left.count - 1;
+            } else { //x у левой границы - первый отрезок
+                i = 0;
+                j = 1;
+                if (block.count == 1) {
+                    right = block.next;
+                    j = 0;
+                }
+            }
+        }
+        double x1 = left.xs[i], x2 = right.xs[j];
+
+        if (Math.abs(x - x1) <= EPSILON) //Если x совпадает с одной из точек-границ отрезка возвращаем по ней y
+            return left.ys[i];
+
+        if (Math.abs(x - x2) <= EPSILON)
+            return right.ys[j];
+
+        return left.ys[i] + (x - x1) * (right.ys[j] - left.ys[i]) / (x2 - x1); //Считаем значение по формуле
+    }
+
+    public double getLeftDomainBorder() {
+        return head.next.xs[0];
+    }
+
+    public double getRightDomainBorder() {
+        return head.prev.xs[head.prev.count - 1];
+    }
+
+    public int getPointsCount() {
+        return length;
+    }
+
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    public double getFunctionValue(double x) {
+        if (!((x + EPSILON >= getLeftDomainBorder()) && (x - EPSILON <= getRightDomainBorder())))
+            return Double.NaN; //x в пределах области функции
+
+        Block block = seek(x);
+        return valueAt(block, lowerBound(block, x), x);
+    }
+
+    public void getFunctionValues(double[] xs, int from, int to, double[] out) {
+        if (xs == null || out == null || from < 0 || from > to || to > xs.length || to > out.length)
+            throw new IllegalArgumentException("Invalid arguments range");
+
+        for (int k = from + 1; k < to; k++) {
+            if (!(xs[k-1] <= xs[k])) { //Неупорядоченные аргументы (или NaN) - поиск отрезка для каждого отдельно
+                for (int j = from; j < to; j++)
+                    out[j] = getFunctionValue(xs[j]);
+                return;
+            }
+        }
+
+        double left = getLeftDomainBorder(), right = getRightDomainBorder();
+        Block block = head.next;
+        int offset = 0;
+        for (int k = from; k < to; k++) { //Для возрастающих аргументов список проходится один раз
+            double x = xs[k];
+            if (!((x + EPSILON >= left) && (x - EPSILON <= right))) {
+                out[k] = Double.NaN;
+                continue;
+            }
+            while (block.xs[offset] + EPSILON < x) { //Правая граница области не меньше x - EPSILON, выход за список невозможен
+                if (++offset == block.count) {
+                    block = block.next;
+                    offset = 0;
+                }
+            }
+            out[k] = valueAt(block, offset, x);
+        }
+    }
+
+    //Число блоков, которые пройдет поиск отрезка для x от запомненного блока, плюс шаги двоичного поиска
+    //внутри блока, без изменения состояния (для метрик)
+    public int segmentSearchSteps(double x) {
+        if (!((x + EPSILON >= getLeftDomainBorder()) && (x - EPSILON <= getRightDomainBorder())))
+            return 0;
+
+        Block block = lastStart >= 0 ? lastBlock : head.next;
+        int steps = 0;
+        while (block.prev != head && block.prev.xs[block.prev.count - 1] + EPSILON >= x) {
+            block = block.prev;
+            steps++;
+        }
+        while (block.next != head && block.xs[block.count - 1] + EPSILON < x) {
+            block = block.next;
+            steps++;
+        }
+        for (int size = block.count; size > 0; size >>>= 1)
+            steps++;
+        return steps;
+    }
+
+    public FunctionPoint getPoint(int index) {
+        Block block = locate(index);
+        return new FunctionPoint(block.xs[index - lastStart], block.ys[index - lastStart]);
+    }
+
+    public double getPointX(int index) {
+        Block block = locate(index);
+        return block.xs[index - lastStart];
+    }
+
+    public double getPointY(int index) {
+        Block block = locate(index);
+        return block.ys[index - lastStart];
+    }
+
+    //Один проход по блокам вместо поиска точки для каждого номера
+    public void forEachPoint(int from, int to, PointConsumer consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null");
+        }
+        if (from < 0 || from > to || to > length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        if (from == to)
+            return;
+
+        Block block = locate(from);
+        int offset = from - lastStart;
+        for (int i = from; i < to; i++) {
+            if (offset == block.count) {
+                block = block.next;
+                offset = 0;
+            }
+            consumer.accept(block.xs[offset], block.ys[offset]);
+            offset++;
+        }
+    }
+
+    public void copyXs(double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - length) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        for (Block block = head.next; block != head; block = block.next) {
+            System.arraycopy(block.xs, 0, target, offset, block.count);
+            offset += block.count;
+        }
+    }
+
+    public void copyYs(double[] target, int offset) {
+        if (target == null || offset < 0 || offset > target.length - length) {
+            throw new IllegalArgumentException("Target array is too small");
+        }
+        for (Block block = head.next; block != head; block = block.next) {
+            System.arraycopy(block.ys, 0, target, offset, block.count);
+            offset += block.count;
+        }
+    }
+
+    public void setPoint(int index, FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (index < 0 || index >= length || point == null) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        setPointX(index, point.getX());
+        lastBlock.ys[index - lastStart] = point.getY(); //setPointX оставил блок точки запомненным
+    }
+
+    public void setPointX(int index, double x)
+            throws InappropriateFunctionPointException {
+        Block block = locate(index);
+        int offset = index - lastStart;
+
+        //Проверка попадания в интервалы по соседним точкам, в том числе из соседних блоков
+        if ((index > 0 && x - EPSILON <= (offset > 0 ? block.xs[offset - 1] : block.prev.xs[block.prev.count - 1])) ||
+                (index < length - 1 && x + EPSILON >= (offset < block.count - 1 ? block.xs[offset + 1] : block.next.xs[0]))) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        block.xs[offset] = x;
+        modificationCount++;
+    }
+
+    public void setPointY(int index, double y) {
+        Block block = locate(index);
+        block.ys[index - lastStart] = y;
+        modificationCount++;
+    }
+
+    public void deletePoint(int index) {
+        if (index < 0 || index >= length) {
+            throw new FunctionPointIndexOutOfBoundsException();
+        }
+        if (length < 3) {
+            throw new IllegalStateException();
+        }
+
+        Block block = locate(index);
+        int start = lastStart, offset = index - start;
+        System.arraycopy(block.xs, offset + 1, block.xs, offset, block.count - offset - 1); //Сдвиг внутри блока
+        System.arraycopy(block.ys, offset + 1, block.ys, offset, block.count - offset - 1);
+        block.count--;
+        length--;
+
+        if (block.count == 0) { //Пустой блок исключается, его номер занимает следующий
+            unlink(block);
+            block = block.next;
+        } else if (block.count < MIN_FILL) {
+            if (block.next != head && block.count + block.next.count <= BLOCK_SIZE) {
+                merge(block);
+            } else if (block.prev != head && block.prev.count + block.count <= BLOCK_SIZE) {
+                block = block.prev;
+                start -= block.count;
+                merge(block);
+            }
+        }
+
+        if (block == head) {
+            lastBlock = head;
+            lastStart = -1;
+        } else {
+            lastBlock = block;
+            lastStart = start;
+        }
+        modificationCount++;
+    }
+
+    //Перенос точек следующего блока в конец данного
+    private static void merge(Block block) {
+        Block next = block.next;
+        System.arraycopy(next.xs, 0, block.xs, block.count, next.count);
+        System.arraycopy(next.ys, 0, block.ys, block.count, next.count);
+        block.count += next.count;
+        unlink(next);
+    }
+
+    //Деление полного блока пополам, вторая половина становится следующим блоком
+    private static Block split(Block block) {
+        Block next = new Block(BLOCK_SIZE);
+        int half = block.count / 2;
+        next.count = block.count - half;
+        System.arraycopy(block.xs, half, next.xs, 0, next.count);
+        System.arraycopy(block.ys, half, next.ys, 0, next.count);
+        block.count = half;
+        linkAfter(block, next);
+        return next;
+    }
+
+    public void addPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (point == null || Double.isNaN(point.getX())) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        double x = point.getX();
+        Block block = seek(x); //Ищем место для новой точки по х: первый номер, где x(j) + EPSILON >= x
+        int start = lastStart, offset = lowerBound(block, x);
+        if (offset < block.count && Math.abs(x - block.xs[offset]) <= EPSILON) { //Если совпадает с другой точкой
+            throw new InappropriateFunctionPointException();
+        }
+
+        if (block.count == BLOCK_SIZE) {
+            Block next = split(block);
+            if (offset > block.count) {
+                offset -= block.count;
+                start += block.count;
+                block = next;
+            }
+        }
+        System.arraycopy(block.xs, offset, block.xs, offset + 1, block.count - offset); //Сдвиг внутри блока
+        System.arraycopy(block.ys, offset, block.ys, offset + 1, block.count - offset);
+        block.xs[offset] = x;
+        block.ys[offset] = point.getY();
+        block.count++;
+        length++;
+
+        lastBlock = block;
+        lastStart = start;
+        modificationCount++;
+    }
+
+    //Добавление точки правее всех имеющихся за O(1): проверяется только правая граница
+    public void appendPoint(FunctionPoint point)
+            throws InappropriateFunctionPointException {
+        if (point == null || !(point.getX() - EPSILON > getRightDomainBorder())) {
+            throw new InappropriateFunctionPointException();
+        }
+
+        addToTail(point.getX(), point.getY());
+        modificationCount++;
+    }
+
+    //Замена всех точек набором EditBatch без проверок; точки копируются в новые блоки
+    public EditResult replacePoints(EditBatch.Replacement replacement) {
+        head.next = head;
+        head.prev = head;
+        this.length = 0;
+        lastBlock = head;
+        lastStart = -1;
+        for (int i = 0; i < replacement.length; i++)
+            addToTail(replacement.xs[i], replacement.ys[i]);
+        modificationCount++;
+        return EditResult.SUCCESS;
+    }
+}
@@ -0,0 +1,106 @@
+package functions;
+
+//Дерево отрезков над ординатами точек: наименьшее и наибольшее значение на диапазоне номеров за O(log n),
+//первая точка со значением не меньше (не больше) заданного - спуском за O(log n), изменение одной ординаты
+//и добавление точки в конец - тоже за O(log n). После вставки и удаления в середине индекс помечается
+//непостроенным и при следующем запросе строится заново за O(n)
+final class ValueRangeIndex {
+    private double[] min = new double[2]; //Узел k покрывает узлы 2k и 2k + 1, листья - с номера size
+    private double[] max = new double[2];
+    private int size = 1; //Число листьев - степень двойки
+    private int count = -1; //Число точек; -1 - индекс не построен
+
+    boolean isBuilt() {
+        return count >= 0;
+    }
+
+    void invalidate() {
+        count = -1;
+    }
+
+    //Начало построения: затем значения задаются через put и вызывается build
+    void reset(int points) {
+        if (size < points) {
+            while (size < points + (points >> 1)) //Запас для добавления точек в конец
+                size <<= 1;
+            min = new double[2 * size];
+            max = new double[2 * size];
+        }
+        count = points;
+    }
+
+    void put(int point, double y) {
+        min[size + point] = y;
+        max[size + point] = y;
+    }
+
+    void build() {
+        for (int i = size + count; i < 2 * size; i++) { //Свободные листья не влияют на результат
+            min[i] = Double.POSITIVE_INFINITY;
+            max[i] = Double.NEGATIVE_INFINITY;
+        }
+        for (int k = size - 1; k > 0; k--) {
+            min[k] = Math.min(min[2 * k], min[2 * k + 1]);
+            max[k] = Math.max(max[2 * k], max[2 * k + 1]);
+        }
+    }
+
+    void set(int point, double y) {
+        if (count < 0)
+            return;
+        int k = size + point;
+        min[k] = y;
+        max[k] = y;
+        for (k >>= 1; k > 0; k >>= 1) {
+            min[k] = Math.min(min[2 * k], min[2 * k + 1]);
+            max[k] = Math.max(max[2 * k], max[2 * k + 1]);
+        }
+    }
+
+    //Новая точка правее всех имеющихся
+    void append(double y) {
+        if (count < 0)
+            return;
+        if (count == size) {
+            invalidate();
+            return;
+        }
+        set(count++, y);
+    }
+
+    //Наименьшее (наибольшее) значение точек с номерами [from; to), from < to
+    double min(int from, int to) {
+        double result = Double.POSITIVE_INFINITY;
+        for (int l = from + size, r = to + size; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) != 0)
+                result = Math.min(result, min[l++]);
+            if ((r & 1) != 0)
+                result = Math.min(result, min[--r]);
+        }
+        return result;
+    }
+
+    double max(int from, int to) {
+        double result = Double.NEGATIVE_INFINITY;
+        for (int l = from + size, r = to + size; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) != 0)
+                result = Math.max(result, max[l++]);
+            if ((r & 1) != 0)
+                result = Math.max(result, max[--r]);
+        }
+        return result;
+    }
+
+    //Номер первой точки со значением не меньше y (при upward) или не больше y; -1, если такой нет
+    int first(double y, boolean upward) {
+        if (upward ? !(max[1] >= y) : !(min[1] <= y))
+            return -1;
+        int k = 1;
+        while (k < size) {
+            k *= 2;
+            if (upward ? !(max[k] >= y) : !(min[k] <= y))
+                k++;
+        }
+        return k - size;
+    }
+}
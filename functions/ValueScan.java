@@ -0,0 +1,67 @@
+package functions;
+
+//Наибольшее (наименьшее) значение на отрезке и первый аргумент с заданным значением за один обход точек
+//(реализация getMinValue, getMaxValue и getArgument по умолчанию)
+final class ValueScan implements PointConsumer {
+    private static final double EPSILON = 1e-9;
+
+    private final boolean inverse; //Поиск аргумента вместо экстремума
+    private final boolean maximum;
+    private final double low; //Для экстремума - отрезок, для поиска аргумента - значение в low
+    private final double high;
+    private boolean started;
+    private double previousX;
+    private double previousY;
+    private double result;
+
+    private ValueScan(boolean inverse, boolean maximum, double low, double high, double result) {
+        this.inverse = inverse;
+        this.maximum = maximum;
+        this.low = low;
+        this.high = high;
+        this.result = result;
+    }
+
+    static double extremum(TabulatedFunction function, double a, double b, boolean maximum) {
+        double left = function.getLeftDomainBorder(), right = function.getRightDomainBorder();
+        if (!((a + EPSILON >= left) && (a - EPSILON <= right) && (b + EPSILON >= left) && (b - EPSILON <= right)))
+            return Double.NaN; //a и b в пределах области функции
+
+        double low = Math.min(Math.max(Math.min(a, b), left), right), high = Math.min(Math.max(Math.max(a, b), left), right);
+        double atLow = function.getFunctionValue(low), atHigh = function.getFunctionValue(high);
+        ValueScan scan = new ValueScan(false, maximum, low, high, maximum ? Math.max(atLow, atHigh) : Math.min(atLow, atHigh));
+        function.forEachPoint(scan);
+        return scan.result;
+    }
+
+    static double argument(TabulatedFunction function, double y) {
+        ValueScan scan = new ValueScan(true, false, y, 0, Double.NaN);
+        function.forEachPoint(scan);
+        return scan.result;
+    }
+
+    //Аргумент на отрезке [(x1, y1); (x2, y2)], при котором значение равно y (y лежит между y1 и y2)
+    static double crossing(double x1, double y1, double x2, double y2, double y) {
+        if (y == y1)
+            return x1;
+        if (y == y2)
+            return x2;
+        return x1 + (y - y1) * (x2 - x1) / (y2 - y1);
+    }
+
+    public void accept(double x, double y) {
+        if (inverse) {
+            if (Double.isNaN(result)) {
+                if (y == low) //Точка с нужным значением
+                    result = x;
+                else if (started && ((previousY < low && low < y) || (y < low && low < previousY)))
+                    result = crossing(previousX, previousY, x, y, low);
+            }
+        } else if (x + EPSILON >= low && x + EPSILON < high) { //Точки внутри отрезка; на его концах значения уже учтены
+            result = maximum ? Math.max(result, y) : Math.min(result, y);
+        }
+        started = true;
+        previousX = x;
+        previousY = y;
+    }
+}
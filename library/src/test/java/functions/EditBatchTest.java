@@ -0,0 +1,88 @@
+package functions;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Результат набора не должен зависеть от оберток: они передают набор таблице, а без замены за один проход
+//набор применяется отдельными вызовами
+class EditBatchTest {
+    //Обертка вне иерархии пакета, которую EditBatch может изменять только отдельными вызовами
+    private static TabulatedFunction callsOnly(TabulatedFunction function) {
+        return (TabulatedFunction) Proxy.newProxyInstance(TabulatedFunction.class.getClassLoader(),
+                new Class<?>[] {TabulatedFunction.class}, (proxy, method, args) -> {
+                    try {
+                        return method.invoke(function, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static void assertPoints(double[] xs, double[] ys, TabulatedFunction function) {
+        assertEquals(xs.length, function.getPointsCount());
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals(xs[i], function.getPointX(i));
+            assertEquals(ys[i], function.getPointY(i));
+        }
+    }
+
+    @Test
+    void wrappersApplyTheSameBatch() {
+        TabulatedFunction[] functions = {
+                new ArrayTabulatedFunction(0, 2, 3),
+                new CachedTabulatedFunction(new ArrayTabulatedFunction(0, 2, 3), 8),
+                new InstrumentedTabulatedFunction(new ConcurrentTabulatedFunction(0, 2, 3)),
+                callsOnly(new ArrayTabulatedFunction(0, 2, 3)),
+                callsOnly(new LinkedListTabulatedFunction(0, 2, 3))
+        };
+        for (TabulatedFunction function : functions) {
+            EditResult result = new EditBatch(function).deletePoint(0).deletePoint(1).addPoint(5, 1).addPoint(7, 2).apply();
+            assertEquals(EditResult.APPLIED, result.getStatus(), function.getClass().getSimpleName());
+            assertPoints(new double[] {2, 5, 7}, new double[] {0, 1, 2}, function);
+        }
+    }
+
+    @Test
+    void replacementsCloseToDeletedPointsAreAppliedByCalls() {
+        TabulatedFunction function = callsOnly(new ArrayTabulatedFunction(0, 1, 2));
+        EditResult result = new EditBatch(function).deletePoint(0).deletePoint(1)
+                .addPoint(5e-10, 3).addPoint(1 + 5e-10, 4).apply();
+        assertEquals(EditResult.APPLIED, result.getStatus());
+        assertPoints(new double[] {5e-10, 1 + 5e-10}, new double[] {3, 4}, function);
+    }
+
+    @Test
+    void wrapperChangesTableOnce() {
+        ArrayTabulatedFunction table = new ArrayTabulatedFunction(0, 10, 11);
+        InstrumentedTabulatedFunction function = new InstrumentedTabulatedFunction(table);
+        long before = table.getModificationCount();
+        EditBatch batch = new EditBatch(function);
+        for (int i = 0; i < 10; i++)
+            batch.setPointY(i, i);
+        assertTrue(batch.apply().isApplied());
+        assertEquals(before + 1, table.getModificationCount());
+        assertEquals(0, function.getMetrics().getCallCount("setPointY"));
+    }
+
+    @Test
+    void streamingReportsPointsDroppedByWindow() throws InappropriateFunctionPointException {
+        StreamingTabulatedFunction function = new StreamingTabulatedFunction(3, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < 3; i++)
+            function.appendPoint(i, i);
+
+        EditResult result = new EditBatch(function).setPointY(2, 9).addPoint(-1, 5).apply();
+        assertEquals(EditResult.WINDOW_DROPPED, result.getStatus());
+        assertEquals(1, result.getOperation());
+        assertTrue(result.isApplied());
+        assertPoints(new double[] {0, 1, 2}, new double[] {0, 1, 9}, function);
+
+        result = new EditBatch(function).addPoint(3, 5).apply(); //Отброшена только точка, которую набор не менял
+        assertEquals(EditResult.APPLIED, result.getStatus());
+        assertPoints(new double[] {1, 2, 3}, new double[] {1, 9, 5}, function);
+    }
+}
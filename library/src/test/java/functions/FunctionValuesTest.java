@@ -0,0 +1,111 @@
+package functions;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Пакетный getFunctionValues должен давать побитно те же результаты, что getFunctionValue для каждого аргумента,
+//в том числе при записи результатов на место аргументов
+class FunctionValuesTest {
+    private static final int[] SIZES = {2, 3, 17, 1000};
+
+    private long state = 42;
+
+    private double random() { //Линейный конгруэнтный генератор, чтобы прогоны повторялись
+        state = state * 6364136223846793005L + 1442695040888963407L;
+        return (state >>> 11) * 0x1.0p-53;
+    }
+
+    private double[] values(int size) {
+        double[] ys = new double[size];
+        for (int i = 0; i < size; i++)
+            ys[i] = Math.sin(i * 0.7) * 100 + random();
+        return ys;
+    }
+
+    private FunctionPoint[] irregularPoints(int size) {
+        FunctionPoint[] points = new FunctionPoint[size];
+        double x = -5;
+        for (int i = 0; i < size; i++) {
+            x += 1e-6 + random() * (i % 3 == 0 ? 1e-3 : 2);
+            points[i] = new FunctionPoint(x, random() * 10 - 5);
+        }
+        return points;
+    }
+
+    //Случайные аргументы с выходом за границы, узлы и их окрестности порядка EPSILON, NaN и бесконечности
+    private double[] arguments(TabulatedFunction function, int count, boolean sorted) {
+        double left = function.getLeftDomainBorder(), right = function.getRightDomainBorder();
+        double[] args = new double[count];
+        for (int k = 0; k < count; k++) {
+            int kind = (int) (random() * 10);
+            double node = function.getPointX((int) (random() * function.getPointsCount()));
+            if (kind < 4)
+                args[k] = left - 1 + (right - left + 2) * random();
+            else if (kind < 8)
+                args[k] = node + (random() - 0.5) * 4e-9;
+            else if (kind == 8)
+                args[k] = node;
+            else if (k % 3 == 0 && !sorted) //NaN не упорядочивается
+                args[k] = Double.NaN;
+            else
+                args[k] = k % 2 == 0 ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        }
+        if (sorted)
+            Sorting.sort(args, new double[count], 0, count);
+        return args;
+    }
+
+    private static void assertSameBits(double expected, double actual, String message) {
+        assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual),
+                message + ": expected " + expected + ", actual " + actual);
+    }
+
+    private void compare(TabulatedFunction function) {
+        for (boolean sorted : new boolean[] {true, false}) {
+            double[] args = arguments(function, 3001, sorted);
+            int from = 3, to = args.length - 5; //Обрабатывается не весь массив
+            double[] values = new double[args.length];
+            function.getFunctionValues(args, from, to, values);
+
+            double[] inPlace = args.clone(); //Результат на месте аргументов
+            function.getFunctionValues(inPlace, from, to, inPlace);
+
+            for (int k = from; k < to; k++) {
+                String message = function.getClass().getSimpleName() + " x = " + args[k];
+                double expected = function.getFunctionValue(args[k]);
+                assertSameBits(expected, values[k], message);
+                assertSameBits(expected, inPlace[k], message + " (in place)");
+            }
+        }
+    }
+
+    @Test
+    void uniformGridMatchesPointwiseValues() {
+        for (int size : SIZES) {
+            double[] ys = values(size);
+            compare(new ArrayTabulatedFunction(-3, 7, ys));
+            compare(new PrimitiveArrayTabulatedFunction(-3, 7, ys));
+        }
+    }
+
+    @Test
+    void irregularPointsMatchPointwiseValues() {
+        for (int size : SIZES) {
+            FunctionPoint[] points = irregularPoints(size);
+            double[] xs = new double[size], ys = new double[size];
+            for (int i = 0; i < size; i++) {
+                xs[i] = points[i].getX();
+                ys[i] = points[i].getY();
+            }
+            PrimitiveArrayTabulatedFunction primitive = new PrimitiveArrayTabulatedFunction(xs[0], xs[size-1], size);
+            EditBatch batch = new EditBatch(primitive);
+            for (int i = 0; i < size; i++)
+                batch.setPoint(i, xs[i], ys[i]);
+            assertTrue(batch.apply().isApplied());
+            compare(new ArrayTabulatedFunction(points));
+            compare(primitive);
+        }
+    }
+}
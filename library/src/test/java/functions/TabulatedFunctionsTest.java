@@ -0,0 +1,54 @@
+package functions;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TabulatedFunctionsTest {
+    private static final double EPSILON = 1e-9;
+
+    private static ArrayTabulatedFunction identity() {
+        return new ArrayTabulatedFunction(new FunctionPoint[] {new FunctionPoint(0, 0), new FunctionPoint(10, 10)});
+    }
+
+    //Результат композиции совпадает с f(g(x)) во всей области определения g
+    private static void assertComposition(TabulatedFunction f, TabulatedFunction g, TabulatedFunction composition) {
+        assertEquals(g.getLeftDomainBorder(), composition.getLeftDomainBorder(), EPSILON);
+        assertEquals(g.getRightDomainBorder(), composition.getRightDomainBorder(), EPSILON);
+        double left = g.getLeftDomainBorder(), right = g.getRightDomainBorder();
+        for (int k = 0; k <= 400; k++) {
+            double x = left + (right - left) * k / 400;
+            assertEquals(f.getFunctionValue(g.getFunctionValue(x)), composition.getFunctionValue(x), 1e-9, "x = " + x);
+        }
+    }
+
+    @Test
+    void composeWithFlatFirstSegment() {
+        ArrayTabulatedFunction g = new ArrayTabulatedFunction(0, 4, new double[] {1, 1, 2, 3, 4});
+        ArrayTabulatedFunction composition = TabulatedFunctions.compose(identity(), g);
+
+        assertEquals(5, composition.getPointsCount());
+        assertEquals(1, composition.getFunctionValue(0.5), EPSILON);
+        assertComposition(identity(), g, composition);
+    }
+
+    @Test
+    void composeWithFlatInnerSegment() {
+        ArrayTabulatedFunction g = new ArrayTabulatedFunction(0, 4, new double[] {1, 2, 2, 3, 4});
+        ArrayTabulatedFunction composition = TabulatedFunctions.compose(identity(), g);
+
+        assertEquals(4, composition.getRightDomainBorder(), EPSILON);
+        assertComposition(identity(), g, composition);
+    }
+
+    @Test
+    void composeKeepsOuterNodesAfterFlatSegment() {
+        double[] squares = new double[11];
+        for (int i = 0; i <= 10; i++)
+            squares[i] = i * i;
+        ArrayTabulatedFunction f = new ArrayTabulatedFunction(0, 10, squares);
+        ArrayTabulatedFunction g = new ArrayTabulatedFunction(0, 3, new double[] {1, 1 + 1e-12, 7, 2});
+
+        assertComposition(f, g, TabulatedFunctions.compose(f, g));
+    }
+}